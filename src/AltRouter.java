@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+/*
+    |--------------------------------------------------------------------------
+    | AltRouter Class
+    |--------------------------------------------------------------------------
+    |
+    | The AltRouter class finds shortest walking routes on the CampusGraph with
+    | ALT: A* search, Landmarks (here called anchors, to avoid confusion with the
+    | campus landmarks) and the Triangle inequality.
+    |
+    | Preprocessing:
+    | - The campus landmarks are used as the first anchors, since they are spread
+    |   across the campus.
+    | - Further anchors are chosen by farthest-point selection: each new anchor is
+    |   the node whose network distance to the nearest existing anchor is largest.
+    | - The network distance from every anchor to every node is computed with
+    |   Dijkstra's algorithm, one anchor per task in parallel, and stored in a
+    |   single float array laid out node by node (`distances[node * anchors + a]`),
+    |   so that all anchor distances of one node are read together.
+    |
+    | Lower Bound:
+    | - For a node v, target t and anchor a, the triangle inequality gives
+    |   dist(v, t) >= |dist(a, t) - dist(a, v)|. The heuristic is the largest such
+    |   bound over all anchors, and never less than the straight-line distance
+    |   (CampusGraph rejects weights below it, so that bound stays valid).
+    | - Anchor distances are stored as floats; each per-anchor bound is lowered
+    |   by the float rounding error of both distances, which grows with the
+    |   distances themselves, so rounding cannot push the bound past the truth.
+    |
+    | Weight Changes:
+    | - When walkway weights only increase, the stored distances still give valid
+    |   (if looser) lower bounds, so nothing is recomputed.
+    | - When any weight decreases, the bounds could overestimate, so the anchor
+    |   distances are recomputed before the next query. This only takes one
+    |   Dijkstra per anchor.
+    |
+    | Methods:
+    | - `route(Location start, Location end)`: Shortest walking route between two
+    |   nodes of the graph, as the list of nodes passed through.
+    | - `getAnchors()`: The anchors currently in use.
+    |
+    */
+
+public class AltRouter {
+    private final CampusGraph graph;
+    private final List<Location> seedAnchors;
+    private final int anchorCount;
+    private volatile Preprocessing preprocessing;
+
+    public AltRouter(CampusGraph graph, List<Location> seedAnchors, int anchorCount) {
+        this.graph = graph;
+        this.seedAnchors = new ArrayList<>(seedAnchors);
+        this.anchorCount = Math.min(graph.size(), Math.max(anchorCount, seedAnchors.size()));
+        this.preprocessing = preprocess();
+    }
+
+    public List<Location> route(Location start, Location end) {
+        Preprocessing current = currentPreprocessing();
+        return graph.shortestPath(graph.indexOf(start), graph.indexOf(end), current::lowerBound);
+    }
+
+    public List<Location> getAnchors() {
+        List<Location> anchors = new ArrayList<>();
+        for (int anchor : currentPreprocessing().anchors) {
+            anchors.add(graph.getNode(anchor));
+        }
+        return anchors;
+    }
+
+    private Preprocessing currentPreprocessing() {
+        Preprocessing current = preprocessing;
+        if (current.decreaseCount != graph.getDecreaseCount()) {
+            synchronized (this) {
+                current = preprocessing;
+                if (current.decreaseCount != graph.getDecreaseCount()) {
+                    current = preprocess();
+                    preprocessing = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Preprocessing preprocess() {
+        int decreaseCount = graph.getDecreaseCount();
+        int n = graph.size();
+        int[] anchors = new int[anchorCount];
+        double[][] anchorDistances = new double[anchorCount][];
+
+        // Seed anchors are independent of each other, so run them in parallel
+        int seeds = Math.min(seedAnchors.size(), anchorCount);
+        for (int a = 0; a < seeds; a++) {
+            anchors[a] = graph.indexOf(seedAnchors.get(a));
+        }
+        IntStream.range(0, seeds).parallel().forEach(a -> anchorDistances[a] = graph.shortestDistances(anchors[a]));
+
+        // Farthest-point anchors each depend on the ones chosen before them
+        double[] nearestAnchor = new double[n];
+        Arrays.fill(nearestAnchor, Double.POSITIVE_INFINITY);
+        for (int a = 0; a < seeds; a++) {
+            for (int v = 0; v < n; v++) {
+                nearestAnchor[v] = Math.min(nearestAnchor[v], anchorDistances[a][v]);
+            }
+        }
+        for (int a = seeds; a < anchorCount; a++) {
+            int farthest = 0;
+            for (int v = 1; v < n; v++) {
+                if (farthestKey(nearestAnchor[v]) > farthestKey(nearestAnchor[farthest])) {
+                    farthest = v;
+                }
+            }
+            anchors[a] = farthest;
+            anchorDistances[a] = graph.shortestDistances(farthest);
+            for (int v = 0; v < n; v++) {
+                nearestAnchor[v] = Math.min(nearestAnchor[v], anchorDistances[a][v]);
+            }
+        }
+
+        float[] distances = new float[n * anchorCount];
+        for (int a = 0; a < anchorCount; a++) {
+            for (int v = 0; v < n; v++) {
+                distances[v * anchorCount + a] = (float) anchorDistances[a][v];
+            }
+        }
+        return new Preprocessing(graph, anchors, distances, decreaseCount);
+    }
+
+    // Unreachable nodes cannot serve as anchors for the rest of the graph
+    private static double farthestKey(double distance) {
+        return distance == Double.POSITIVE_INFINITY ? -1 : distance;
+    }
+
+    private static class Preprocessing {
+        private final CampusGraph graph;
+        private final int[] anchors;
+        private final float[] distances;
+        private final int decreaseCount;
+
+        Preprocessing(CampusGraph graph, int[] anchors, float[] distances, int decreaseCount) {
+            this.graph = graph;
+            this.anchors = anchors;
+            this.distances = distances;
+            this.decreaseCount = decreaseCount;
+        }
+
+        double lowerBound(int node, int target) {
+            int k = anchors.length;
+            int nodeBase = node * k;
+            int targetBase = target * k;
+            double bound = 0;
+            for (int a = 0; a < k; a++) {
+                float toNode = distances[nodeBase + a];
+                float toTarget = distances[targetBase + a];
+                if (toNode != Float.POSITIVE_INFINITY && toTarget != Float.POSITIVE_INFINITY) {
+                    // Each stored distance is off by at most half an ulp, so taking
+                    // a whole ulp off per distance keeps the bound below the truth
+                    double difference = Math.abs((double) toTarget - toNode);
+                    bound = Math.max(bound, difference - Math.ulp(toTarget) - Math.ulp(toNode));
+                }
+            }
+            return Math.max(bound, MapUtils.calculateDistance(graph.getNode(node).getId(), graph.getNode(target).getId()));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/*
+    |--------------------------------------------------------------------------
+    | BatchRouter Class
+    |--------------------------------------------------------------------------
+    |
+    | The BatchRouter class is the headless counterpart of RouteFinder. It reads
+    | route queries from a file (or standard input), computes every route with
+    | MapUtils.calculateRoute and writes the results, in input order, to a file
+    | (or standard output). It is started through Main with the `--batch` flag.
+    |
+    | Usage:
+    |   java Main --batch [--input <file|->] [--output <file|->] [--threads <n>]
+    |
+    | Input Format:
+    | - One query per line: `start,end[,landmark]`, using the names known to
+    |   MapUtils.getLocationByName and MapUtils.getLandmarkByName.
+    | - Blank lines and lines starting with `#` are ignored.
+    |
+    | Output Format:
+    | - One line per query: `<distance in km>\t<node> > <node> > ...`
+    | - Queries that cannot be resolved produce `ERROR\t<reason>` so that the
+    |   output stays aligned with the input.
+    |
+    | Pipeline:
+    | - The reader groups lines into fixed-size chunks and submits each chunk to
+    |   a fixed thread pool sized to the number of cores.
+    | - At most `threads * CHUNKS_PER_THREAD` chunks are in flight. When the window
+    |   is full the reader waits for the oldest chunk and writes it before reading
+    |   further, which gives back-pressure and keeps memory constant regardless of
+    |   the input size.
+    | - Because chunks are written oldest-first, output order matches input order.
+    | - Workers encode their chunk to UTF-8 bytes, so the writer only copies bytes
+    |   into a reusable NIO buffer and drains it to the output channel.
+    |
+    */
+
+public class BatchRouter {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final int threads;
+
+    public BatchRouter(int threads) {
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = "-";
+        String output = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch":
+                    break;
+                case "--input":
+                    input = requireValue(args, ++i);
+                    break;
+                case "--output":
+                    output = requireValue(args, ++i);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i));
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.err.println("Usage: java Main --batch [--input <file|->] [--output <file|->] [--threads <n>]");
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        BufferedReader reader = "-".equals(input)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE)
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+        WritableByteChannel channel = "-".equals(output)
+                ? Channels.newChannel(System.out)
+                : FileChannel.open(Paths.get(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try (BufferedReader in = reader; WritableByteChannel out = channel) {
+            new BatchRouter(Math.max(1, threads)).run(in, out);
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    public void run(BufferedReader in, WritableByteChannel out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<byte[]>> window = new ArrayDeque<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(executor, window, chunk, out, buffer);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(executor, window, chunk, out, buffer);
+            }
+            while (!window.isEmpty()) {
+                write(out, buffer, await(window.poll()));
+            }
+            flush(out, buffer);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Writes out the oldest chunk first if the window is full
+    private void submit(ExecutorService executor, ArrayDeque<Future<byte[]>> window, List<String> chunk,
+                        WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        if (window.size() == threads * CHUNKS_PER_THREAD) {
+            write(out, buffer, await(window.poll()));
+        }
+        window.add(executor.submit(() -> routeChunk(chunk)));
+    }
+
+    private static byte[] routeChunk(List<String> queries) {
+        StringBuilder result = new StringBuilder(queries.size() * 96);
+        for (String query : queries) {
+            routeQuery(query, result);
+        }
+        return result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void routeQuery(String query, StringBuilder result) {
+        String[] parts = query.split(",", -1);
+        if (parts.length < 2 || parts.length > 3) {
+            result.append("ERROR\tmalformed query: ").append(query).append('\n');
+            return;
+        }
+
+        Location start = MapUtils.getLocationByName(parts[0].trim());
+        Location end = MapUtils.getLocationByName(parts[1].trim());
+        String landmarkName = parts.length == 3 ? parts[2].trim() : "";
+        Location landmark = landmarkName.isEmpty() ? null : MapUtils.getLandmarkByName(landmarkName);
+
+        if (start == null) {
+            result.append("ERROR\tunknown location: ").append(parts[0].trim()).append('\n');
+            return;
+        }
+        if (end == null) {
+            result.append("ERROR\tunknown location: ").append(parts[1].trim()).append('\n');
+            return;
+        }
+        if (!landmarkName.isEmpty() && landmark == null) {
+            result.append("ERROR\tunknown landmark: ").append(landmarkName).append('\n');
+            return;
+        }
+
+        List<Location> route = MapUtils.calculateRoute(start, end, landmark);
+        result.append(String.format(Locale.ROOT, "%.4f", MapUtils.calculateRouteDistance(route))).append('\t');
+        for (int i = 0; i < route.size(); i++) {
+            if (i > 0) {
+                result.append(" > ");
+            }
+            result.append(route.get(i).getName());
+        }
+        result.append('\n');
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for routes", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Route calculation failed", e.getCause());
+        }
+    }
+
+    private static void write(WritableByteChannel out, ByteBuffer buffer, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(out, buffer);
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private static void flush(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
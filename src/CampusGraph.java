@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+/*
+    |--------------------------------------------------------------------------
+    | CampusGraph Class
+    |--------------------------------------------------------------------------
+    |
+    | The CampusGraph class is the pedestrian network of the campus: every
+    | location and landmark is a node, and every walkway between two of them is
+    | an undirected edge weighted by its walking distance in kilometers.
+    |
+    | Nodes are numbered 0..n-1 in the order they were given, and the edges are
+    | kept in compressed adjacency arrays (the neighbours of node `v` are
+    | `targets[offsets[v]]` to `targets[offsets[v + 1] - 1]`), so searches work on
+    | primitive arrays indexed by node number instead of on Location objects.
+    |
+    | Constructor:
+    | - CampusGraph(List<Location> nodes, List<Location[]> walkways):
+    |   Builds the graph. Each walkway is a pair of nodes; its initial weight is
+    |   the straight-line distance between them.
+    |
+    | Methods:
+    | - `size()`, `getNode(int id)`, `indexOf(Location location)`:
+    |   Translate between node numbers and Location objects. indexOf is an array
+    |   lookup by location id. When the graph is built from every location in id
+    |   order, as MapUtils does, node numbers and location ids are the same.
+    | - `contains(Location location)`: Whether the location is a node of the graph.
+    | - `getFirstEdge(int node)`, `getEdgeEnd(int node)`, `getEdgeTarget(int edge)`,
+    |   `getEdgeWeight(int edge)`: Direct access to the adjacency arrays. The edges
+    |   of a node are numbered from getFirstEdge (inclusive) to getEdgeEnd
+    |   (exclusive).
+    | - `setWeight(int u, int v, double weight)`:
+    |   Changes the weight of the walkway between two nodes, e.g. when a path is
+    |   closed or a detour is signposted. Weights are walking distances and must
+    |   not be shorter than the straight-line distance; shorter weights are
+    |   rejected with an IllegalArgumentException.
+    | - `getDecreaseCount()`:
+    |   Number of weight decreases so far. Precomputed lower bounds stay valid
+    |   when weights only increase, so callers compare this counter to decide
+    |   whether they need to recompute.
+    | - `getWeightVersion()`:
+    |   Number of weight changes so far, increased after every setWeight. Used by
+    |   precomputed data that depends on the exact weights.
+    | - `shortestDistances(int source)`:
+    |   Dijkstra's algorithm from one node; returns the distance to every node.
+    | - `shortestPath(int source, int target, Heuristic heuristic)`:
+    |   A* search guided by an admissible heuristic; returns the node path.
+    | - `shortestDistance(int source, int target, Heuristic heuristic)`:
+    |   The same search, returning only the distance (infinite if unreachable).
+    |
+    */
+
+public class CampusGraph {
+    // Lower bound on the remaining distance from a node to the target
+    public interface Heuristic {
+        double estimate(int node, int target);
+    }
+
+    private final Location[] nodes;
+    private final int[] nodeOfId;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private volatile int decreaseCount;
+    private volatile int weightVersion;
+
+    public CampusGraph(List<Location> nodes, List<Location[]> walkways) {
+        this.nodes = nodes.toArray(new Location[0]);
+        int maxId = -1;
+        for (Location node : this.nodes) {
+            maxId = Math.max(maxId, node.getId());
+        }
+        nodeOfId = new int[maxId + 1];
+        Arrays.fill(nodeOfId, -1);
+        for (int i = 0; i < this.nodes.length; i++) {
+            nodeOfId[this.nodes[i].getId()] = i;
+        }
+
+        int n = this.nodes.length;
+        offsets = new int[n + 1];
+        for (Location[] walkway : walkways) {
+            offsets[indexOf(walkway[0]) + 1]++;
+            offsets[indexOf(walkway[1]) + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        targets = new int[offsets[n]];
+        weights = new double[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (Location[] walkway : walkways) {
+            int u = indexOf(walkway[0]);
+            int v = indexOf(walkway[1]);
+            double distance = MapUtils.calculateDistance(walkway[0].getId(), walkway[1].getId());
+            targets[next[u]] = v;
+            weights[next[u]++] = distance;
+            targets[next[v]] = u;
+            weights[next[v]++] = distance;
+        }
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public Location getNode(int id) {
+        return nodes[id];
+    }
+
+    public boolean contains(Location location) {
+        return location != null && location.getId() < nodeOfId.length && nodeOfId[location.getId()] >= 0;
+    }
+
+    public int indexOf(Location location) {
+        int node = location == null || location.getId() >= nodeOfId.length ? -1 : nodeOfId[location.getId()];
+        if (node < 0) {
+            throw new IllegalArgumentException("Not on the campus graph: " + (location == null ? null : location.getName()));
+        }
+        return node;
+    }
+
+    public int getFirstEdge(int node) {
+        return offsets[node];
+    }
+
+    public int getEdgeEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    public double getEdgeWeight(int edge) {
+        return weights[edge];
+    }
+
+    public int getDecreaseCount() {
+        return decreaseCount;
+    }
+
+    public int getWeightVersion() {
+        return weightVersion;
+    }
+
+    public synchronized void setWeight(int u, int v, double weight) {
+        // Routers use the straight-line distance as a lower bound, so it is also a floor
+        double straightLine = MapUtils.calculateDistance(nodes[u].getId(), nodes[v].getId());
+        if (!(weight >= straightLine)) {
+            throw new IllegalArgumentException("Weight " + weight + " between " + nodes[u].getName() + " and "
+                    + nodes[v].getName() + " is shorter than the straight-line distance " + straightLine);
+        }
+        boolean found = false;
+        boolean decreased = false;
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            if (targets[e] == v) {
+                decreased |= weight < weights[e];
+                weights[e] = weight;
+                found = true;
+            }
+        }
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (targets[e] == u) {
+                decreased |= weight < weights[e];
+                weights[e] = weight;
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No walkway between " + nodes[u].getName() + " and " + nodes[v].getName());
+        }
+        // Counters are bumped only after both directions hold the new weight
+        if (decreased) {
+            decreaseCount++;
+        }
+        weightVersion++;
+    }
+
+    public double[] shortestDistances(int source) {
+        double[] distance = new double[nodes.length];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[nodes.length];
+        NodeHeap heap = new NodeHeap(nodes.length);
+
+        distance[source] = 0;
+        heap.push(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            if (settled[u]) {
+                continue;
+            }
+            settled[u] = true;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double candidate = distance[u] + weights[e];
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    heap.push(v, candidate);
+                }
+            }
+        }
+        return distance;
+    }
+
+    public List<Location> shortestPath(int source, int target, Heuristic heuristic) {
+        double[] distance = new double[nodes.length];
+        int[] parent = new int[nodes.length];
+        search(source, target, heuristic, distance, parent);
+
+        List<Location> path = new ArrayList<>();
+        if (distance[target] == Double.POSITIVE_INFINITY) {
+            return path;
+        }
+        for (int v = target; v != -1; v = parent[v]) {
+            path.add(nodes[v]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public double shortestDistance(int source, int target, Heuristic heuristic) {
+        double[] distance = new double[nodes.length];
+        search(source, target, heuristic, distance, new int[nodes.length]);
+        return distance[target];
+    }
+
+    // A* from source, stopping once target is settled
+    private void search(int source, int target, Heuristic heuristic, double[] distance, int[] parent) {
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[nodes.length];
+        NodeHeap heap = new NodeHeap(nodes.length);
+
+        distance[source] = 0;
+        parent[source] = -1;
+        heap.push(source, heuristic.estimate(source, target));
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            if (u == target) {
+                break;
+            }
+            if (settled[u]) {
+                continue;
+            }
+            settled[u] = true;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double candidate = distance[u] + weights[e];
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    parent[v] = u;
+                    heap.push(v, candidate + heuristic.estimate(v, target));
+                }
+            }
+        }
+    }
+
+    // Binary min-heap of (node, key) pairs; stale entries are skipped by the caller.
+    // Shared with OverlayGraph and ShardCoordinator, which run their own restricted searches.
+    static class NodeHeap {
+        private int[] heapNodes;
+        private double[] keys;
+        private int size;
+
+        NodeHeap(int capacity) {
+            heapNodes = new int[Math.max(4, capacity)];
+            keys = new double[heapNodes.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(int node, double key) {
+            if (size == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (keys[p] <= key) {
+                    break;
+                }
+                heapNodes[i] = heapNodes[p];
+                keys[i] = keys[p];
+                i = p;
+            }
+            heapNodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = heapNodes[0];
+            int node = heapNodes[--size];
+            double key = keys[size];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) {
+                    break;
+                }
+                if (c + 1 < size && keys[c + 1] < keys[c]) {
+                    c++;
+                }
+                if (keys[c] >= key) {
+                    break;
+                }
+                heapNodes[i] = heapNodes[c];
+                keys[i] = keys[c];
+                i = c;
+            }
+            heapNodes[i] = node;
+            keys[i] = key;
+            return top;
+        }
+    }
+}
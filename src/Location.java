@@ -7,40 +7,66 @@
     | and longitude. This class is used to store and retrieve information about
     | specific points of interest on a map.
     |
+    | A Location is a lightweight view: it only holds the location's dense int id,
+    | and the name and coordinates live in LocationStore. Two Location objects
+    | with the same id are equal.
+    |
     | Properties:
-    | - name: The name of the location.
-    | - latitude: The latitude coordinate of the location.
-    | - longitude: The longitude coordinate of the location.
+    | - id: The dense id of the location in LocationStore.
     |
     | Methods:
+    | - getId(): Returns the id of the location, for use as an array index.
     | - getName(): Returns the name of the location.
     | - getLatitude(): Returns the latitude coordinate of the location.
     | - getLongitude(): Returns the longitude coordinate of the location.
+    | - of(int id): Returns the view of the location with the given id.
     |
     | This class provides basic getters for accessing the location details and
     | is typically used in conjunction with mapping and routing functionality.
     |
     */
 public class Location {
-    private String name;
-    private double latitude;
-    private double longitude;
+    private final int id;
 
+    // Registers a new location in LocationStore
     public Location(String name, double latitude, double longitude) {
-        this.name = name;
-        this.latitude = latitude;
-        this.longitude = longitude;
+        this(LocationStore.register(name, latitude, longitude));
+    }
+
+    private Location(int id) {
+        this.id = id;
+    }
+
+    public static Location of(int id) {
+        if (id < 0 || id >= LocationStore.size()) {
+            throw new IllegalArgumentException("Unknown location id: " + id);
+        }
+        return new Location(id);
+    }
+
+    public int getId() {
+        return id;
     }
 
     public String getName() {
-        return name;
+        return LocationStore.getName(id);
     }
 
     public double getLatitude() {
-        return latitude;
+        return LocationStore.getLatitude(id);
     }
 
     public double getLongitude() {
-        return longitude;
+        return LocationStore.getLongitude(id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Location && ((Location) other).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
     }
 }
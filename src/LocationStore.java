@@ -0,0 +1,73 @@
+import java.util.Arrays;
+/*
+    |--------------------------------------------------------------------------
+    | LocationStore Class
+    |--------------------------------------------------------------------------
+    |
+    | The LocationStore class holds the data of every location and landmark in
+    | struct-of-arrays form: one array per property, indexed by a dense int id
+    | handed out in registration order (0, 1, 2, ...). Location objects are only
+    | views holding an id, so routing code can keep its per-node state in arrays
+    | indexed by the same id instead of in maps or lists of Location objects.
+    |
+    | Static Methods:
+    | - `register(String name, double latitude, double longitude)`:
+    |   Stores a new location and returns its id.
+    | - `size()`: Number of ids handed out so far.
+    | - `getName(int id)`, `getLatitude(int id)`, `getLongitude(int id)`:
+    |   Read one property of a location.
+    | - `getCosLatitude(int id)`: Cosine of the latitude, precomputed because the
+    |   Haversine formula needs it for both ends of every distance.
+    |
+    | Locations are registered while MapUtils is initialised and never removed.
+    | Registration is synchronized; the arrays are replaced, never shrunk, when
+    | they grow, so readers always see a complete array.
+    |
+    */
+
+public class LocationStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static volatile String[] names = new String[INITIAL_CAPACITY];
+    private static volatile double[] latitudes = new double[INITIAL_CAPACITY];
+    private static volatile double[] longitudes = new double[INITIAL_CAPACITY];
+    private static volatile double[] cosLatitudes = new double[INITIAL_CAPACITY];
+    private static volatile int size;
+
+    public static synchronized int register(String name, double latitude, double longitude) {
+        int id = size;
+        if (id == names.length) {
+            int capacity = id * 2;
+            names = Arrays.copyOf(names, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            cosLatitudes = Arrays.copyOf(cosLatitudes, capacity);
+        }
+        names[id] = name;
+        latitudes[id] = latitude;
+        longitudes[id] = longitude;
+        cosLatitudes[id] = Math.cos(Math.toRadians(latitude));
+        size = id + 1;
+        return id;
+    }
+
+    public static int size() {
+        return size;
+    }
+
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    public static double getLatitude(int id) {
+        return latitudes[id];
+    }
+
+    public static double getLongitude(int id) {
+        return longitudes[id];
+    }
+
+    public static double getCosLatitude(int id) {
+        return cosLatitudes[id];
+    }
+}
@@ -2,6 +2,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import utils.AuthUtils;
 
 /*
@@ -33,7 +35,8 @@ import utils.AuthUtils;
     | - Displays a login form with icons for user ID and password fields.
     | - Shows tooltips for guidance on what to enter in each field.
     | - Changes button color and text to enhance usability.
-    | - Validates login credentials using `AuthUtils.authenticate`.
+    | - Validates login credentials using `AuthUtils.authenticateAsync`, keeping the
+    |   window responsive and the login button disabled while the check runs.
     | - Provides feedback with a message dialog on successful or failed login attempts.
     | - On successful login, it opens the RouteFinder window and closes the login window.
     |
@@ -99,15 +102,30 @@ public class Login extends JFrame {
             @Override
             public void actionPerformed(ActionEvent e) {
                 String studentId = studentIdField.getText();
-                String password = new String(passwordField.getPassword());
-
-                if (AuthUtils.authenticate(studentId, password)) {
-                    JOptionPane.showMessageDialog(null, "Login successful");
-                    dispose();
-                    new RouteFinder().setVisible(true);
-                } else {
-                    JOptionPane.showMessageDialog(null, "Invalid credentials");
-                }
+                char[] password = passwordField.getPassword();
+
+                // Password hashing is slow on purpose, so keep it off the Event Dispatch Thread
+                loginButton.setEnabled(false);
+                loginButton.setText("Logging in...");
+                AuthUtils.authenticateAsync(studentId, password).whenComplete((token, error) -> SwingUtilities.invokeLater(() -> {
+                    loginButton.setEnabled(true);
+                    loginButton.setText("Login");
+
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof RejectedExecutionException) {
+                        JOptionPane.showMessageDialog(Login.this, "Too many login attempts, please try again");
+                    } else if (cause != null) {
+                        // e.g. an unreadable credential file or a missing PBKDF2 provider
+                        cause.printStackTrace();
+                        JOptionPane.showMessageDialog(Login.this, "Login failed because of an internal error, please contact support");
+                    } else if (token != null) {
+                        JOptionPane.showMessageDialog(Login.this, "Login successful");
+                        dispose();
+                        new RouteFinder().setVisible(true);
+                    } else {
+                        JOptionPane.showMessageDialog(Login.this, "Invalid credentials");
+                    }
+                }));
             }
         });
     }
@@ -13,11 +13,20 @@
     | starting the application and making the login window visible to
     | the user.
     |
+    | When started with the `--batch` flag, no window is shown. The remaining
+    | arguments are handed to BatchRouter, which routes queries headlessly.
+    |
     */
 import javax.swing.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Headless batch mode
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRouter.main(args);
+            return;
+        }
+
         // Create and show the login window
         SwingUtilities.invokeLater(() -> {
             Login login = new Login();
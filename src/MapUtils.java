@@ -12,14 +12,24 @@
     |   Location objects as values.
     | - LANDMARKS: A map of predefined landmarks with their names as keys and
     |   Location objects as values.
+    | - LOCATION_IDS, LANDMARK_IDS: The ids of the locations and of the landmarks,
+    |   so the algorithms can loop over ints instead of map values.
+    | - WALKWAYS: Pairs of locations or landmarks joined by a walkway. Together with
+    |   the locations and landmarks they form the campus graph.
     |
     | Static Methods:
     | - getLocationByName(String name): Retrieves a Location object from the
     |   LOCATIONS map based on the provided name.
     | - getLandmarkByName(String name): Retrieves a Location object from the
     |   LANDMARKS map based on the provided name.
+    | - getPlaceByName(String name): Retrieves a location or, failing that, a
+    |   landmark with the provided name.
     | - calculateDistance(Location loc1, Location loc2): Computes the distance
     |   (in kilometers) between two Location objects using the Haversine formula.
+    |   An overload taking two location ids reads the coordinates directly from
+    |   LocationStore.
+    | - calculateRouteDistance(List<Location> route): Sums the distances (in
+    |   kilometers) between consecutive locations of a route.
     | - getNearbyLandmarks(Location currentLocation): Returns a list of landmarks
     |   within a 1 km radius of the given location.
     | - calculateRouteGreedy(Location start, Location end, Location landmark):
@@ -30,12 +40,27 @@
     |   Computes the shortest route using the Floyd-Warshall algorithm. This dynamic
     |   programming approach calculates all-pairs shortest paths and reconstructs the
     |   shortest path from start to end, optionally including a specified landmark.
+    | - calculateRouteAlt(Location start, Location end, Location landmark):
+    |   Computes the shortest walking route over the walkway graph using A* guided
+    |   by precomputed anchor distances (ALT). If a landmark is given, the route
+    |   walks to the landmark first and then on to the end location.
+    | - calculateRouteOverlay(Location start, Location end, Location landmark):
+    |   Computes the same shortest walking route with the multi-level cell overlay
+    |   (OverlayGraph), with the same handling of the landmark.
     | - calculateRoute(Location start, Location end, Location landmark):
     |   Chooses the route calculation method based on requirements. Currently defaults
-    |   to the greedy approach but can be switched to dynamic programming.
+    |   to the greedy approach; the system property `ugnavigate.routing=alt` switches
+    |   it to ALT and `ugnavigate.routing=overlay` to the cell overlay.
+    | - getCampusGraph(): Returns the walkway graph connecting all locations and
+    |   landmarks. The graph, and the ALT and overlay routers on it, are built the
+    |   first time they are needed.
+    | - getAllPlaces(), getWalkways(): The locations and landmarks in id order and
+    |   the walkways between them, for callers that build their own graph.
     |
     | Data Structures:
     | - HashMap: Used for storing predefined locations and landmarks.
+    | - Id-indexed arrays and BitSet: Used for per-location state (such as visited
+    |   locations) so each check is a constant-time array access.
     | - ArrayList: Used for managing lists of locations and landmarks.
     | - 2D Array: Used in the Floyd-Warshall algorithm to store distance matrices.
     |
@@ -45,6 +70,9 @@
     |   location.
     | - Floyd-Warshall Algorithm: Used for finding shortest paths between all pairs of
     |   locations.
+    | - ALT (A*, Landmarks, Triangle inequality): Used for shortest walking routes on
+    |   the walkway graph, with the campus landmarks as the first anchors.
+    | - Customizable Route Planning: Used for the cell overlay, see OverlayGraph.
     |
     | This class is designed for applications involving mapping, navigation, and
     | location services where predefined locations and landmarks are utilized.
@@ -52,13 +80,22 @@
     */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 public class MapUtils {
     // Define locations and landmarks
     private static final Map<String, Location> LOCATIONS = new HashMap<>();
     private static final Map<String, Location> LANDMARKS = new HashMap<>();
+    private static final List<Location[]> WALKWAYS = new ArrayList<>();
+    private static final int[] LOCATION_IDS;
+    private static final int[] LANDMARK_IDS;
+    private static final int ALT_ANCHORS = 5;
+    private static final String ROUTING_MODE = System.getProperty("ugnavigate.routing", "greedy");
 
     static {
         LOCATIONS.put("Main Entrance Gate", new Location("Main Entrance Gate", 5.6478, -0.1915));
@@ -70,6 +107,66 @@ public class MapUtils {
         LANDMARKS.put("Great Hall", new Location("Great Hall", 5.6454, -0.1918));
         LANDMARKS.put("Sports Complex", new Location("Sports Complex", 5.6459, -0.1920));
         LANDMARKS.put("International House", new Location("International House", 5.6457, -0.1919));
+
+        addWalkway("Main Entrance Gate", "University of Ghana Medical School");
+        addWalkway("Main Entrance Gate", "University Hostel");
+        addWalkway("University of Ghana Medical School", "Legon Campus Library");
+        addWalkway("University of Ghana Medical School", "University Hostel");
+        addWalkway("Legon Campus Library", "University Hostel");
+        addWalkway("Legon Campus Library", "Sports Complex");
+        addWalkway("University Hostel", "Sports Complex");
+        addWalkway("Sports Complex", "International House");
+        addWalkway("International House", "Great Hall");
+        addWalkway("Great Hall", "Centre for Digital Innovation and Entrepreneurship");
+
+        LOCATION_IDS = idsOf(LOCATIONS);
+        LANDMARK_IDS = idsOf(LANDMARKS);
+    }
+
+    // The graph and its routers are built on first use, so the greedy and
+    // Floyd-Warshall modes, and region shards, never pay for them
+    private static class CampusGraphHolder {
+        private static final CampusGraph CAMPUS_GRAPH = new CampusGraph(getAllPlaces(), WALKWAYS);
+    }
+
+    private static class AltRouterHolder {
+        private static final AltRouter ALT_ROUTER =
+                new AltRouter(CampusGraphHolder.CAMPUS_GRAPH, new ArrayList<>(LANDMARKS.values()), ALT_ANCHORS);
+    }
+
+    private static class OverlayGraphHolder {
+        private static final OverlayGraph OVERLAY_GRAPH = new OverlayGraph(CampusGraphHolder.CAMPUS_GRAPH);
+    }
+
+    private static int[] idsOf(Map<String, Location> places) {
+        int[] ids = new int[places.size()];
+        int i = 0;
+        for (Location location : places.values()) {
+            ids[i++] = location.getId();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static void addWalkway(String from, String to) {
+        WALKWAYS.add(new Location[]{getPlaceByName(from), getPlaceByName(to)});
+    }
+
+    public static CampusGraph getCampusGraph() {
+        return CampusGraphHolder.CAMPUS_GRAPH;
+    }
+
+    // Every location and landmark in id order, so graph node numbers are the location ids
+    public static List<Location> getAllPlaces() {
+        List<Location> places = new ArrayList<>();
+        for (int id = 0; id < LocationStore.size(); id++) {
+            places.add(Location.of(id));
+        }
+        return places;
+    }
+
+    public static List<Location[]> getWalkways() {
+        return Collections.unmodifiableList(WALKWAYS);
     }
 
     public static Location getLocationByName(String name) {
@@ -80,22 +177,40 @@ public class MapUtils {
         return LANDMARKS.get(name);
     }
 
+    public static Location getPlaceByName(String name) {
+        Location location = LOCATIONS.get(name);
+        return location != null ? location : LANDMARKS.get(name);
+    }
+
     public static double calculateDistance(Location loc1, Location loc2) {
+        return calculateDistance(loc1.getId(), loc2.getId());
+    }
+
+    // Same as above, reading the coordinates straight from LocationStore
+    public static double calculateDistance(int id1, int id2) {
         final int R = 6371; // Radius of the earth in km
-        double latDistance = Math.toRadians(loc2.getLatitude() - loc1.getLatitude());
-        double lonDistance = Math.toRadians(loc2.getLongitude() - loc1.getLongitude());
+        double latDistance = Math.toRadians(LocationStore.getLatitude(id2) - LocationStore.getLatitude(id1));
+        double lonDistance = Math.toRadians(LocationStore.getLongitude(id2) - LocationStore.getLongitude(id1));
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2) +
-                Math.cos(Math.toRadians(loc1.getLatitude())) * Math.cos(Math.toRadians(loc2.getLatitude())) *
+                LocationStore.getCosLatitude(id1) * LocationStore.getCosLatitude(id2) *
                         Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         return R * c; // Distance in km
     }
 
+    public static double calculateRouteDistance(List<Location> route) {
+        double total = 0;
+        for (int i = 1; i < route.size(); i++) {
+            total += calculateDistance(route.get(i - 1).getId(), route.get(i).getId());
+        }
+        return total;
+    }
+
     public static List<Location> getNearbyLandmarks(Location currentLocation) {
         List<Location> nearbyLandmarks = new ArrayList<>();
-        for (Location location : LANDMARKS.values()) {
-            if (calculateDistance(currentLocation, location) <= 1) { // 1 km radius
-                nearbyLandmarks.add(location);
+        for (int id : LANDMARK_IDS) {
+            if (calculateDistance(currentLocation.getId(), id) <= 1) { // 1 km radius
+                nearbyLandmarks.add(Location.of(id));
             }
         }
         return nearbyLandmarks;
@@ -104,27 +219,30 @@ public class MapUtils {
     // Applying Greedy Approach
     public static List<Location> calculateRouteGreedy(Location start, Location end, Location landmark) {
         List<Location> route = new ArrayList<>();
-        Location current = start;
+        BitSet visited = new BitSet(LocationStore.size());
+        int current = start.getId();
 
-        route.add(current);
+        route.add(start);
+        visited.set(current);
 
         // Use a Greedy approach to add locations closest to the current location
-        while (current != null && !current.equals(end)) {
-            Location next = null;
+        while (current != end.getId()) {
+            int next = -1;
             double shortestDistance = Double.MAX_VALUE;
 
-            for (Location loc : LOCATIONS.values()) {
-                if (!route.contains(loc)) {
-                    double distance = calculateDistance(current, loc);
+            for (int id : LOCATION_IDS) {
+                if (!visited.get(id)) {
+                    double distance = calculateDistance(current, id);
                     if (distance < shortestDistance) {
                         shortestDistance = distance;
-                        next = loc;
+                        next = id;
                     }
                 }
             }
 
-            if (next != null) {
-                route.add(next);
+            if (next != -1) {
+                route.add(Location.of(next));
+                visited.set(next);
                 current = next;
             } else {
                 break;
@@ -133,9 +251,10 @@ public class MapUtils {
 
         // Add the end location
         route.add(end);
+        visited.set(end.getId());
 
         // Optionally, add the landmark if not null
-        if (landmark != null && !route.contains(landmark)) {
+        if (landmark != null && !visited.get(landmark.getId())) {
             route.add(landmark);
         }
 
@@ -144,9 +263,13 @@ public class MapUtils {
 
     // Applying Dynamic Programming Approach (Floyd-Warshall Algorithm)
     public static List<Location> calculateRouteDynamic(Location start, Location end, Location landmark) {
-        // Create a map of all locations
-        List<Location> allLocations = new ArrayList<>(LOCATIONS.values());
-        int n = allLocations.size();
+        // Matrix rows and columns follow LOCATION_IDS; position maps an id back to its row
+        int n = LOCATION_IDS.length;
+        int[] position = new int[LocationStore.size()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; i++) {
+            position[LOCATION_IDS[i]] = i;
+        }
         double[][] distanceMatrix = new double[n][n];
 
         // Initialize distance matrix
@@ -155,7 +278,7 @@ public class MapUtils {
                 if (i == j) {
                     distanceMatrix[i][j] = 0;
                 } else {
-                    distanceMatrix[i][j] = calculateDistance(allLocations.get(i), allLocations.get(j));
+                    distanceMatrix[i][j] = calculateDistance(LOCATION_IDS[i], LOCATION_IDS[j]);
                 }
             }
         }
@@ -173,16 +296,17 @@ public class MapUtils {
 
         // Reconstruct the shortest path
         List<Location> route = new ArrayList<>();
-        int startIndex = allLocations.indexOf(start);
-        int endIndex = allLocations.indexOf(end);
+        int startIndex = position[start.getId()];
+        int endIndex = position[end.getId()];
         route.add(start);
 
         // Find the shortest path from start to end
         // This is a simplified example and does not handle intermediate locations properly
         while (startIndex != endIndex) {
             for (int i = 0; i < n; i++) {
-                if (distanceMatrix[startIndex][i] + distanceMatrix[i][endIndex] == distanceMatrix[startIndex][endIndex]) {
-                    route.add(allLocations.get(i));
+                // The start itself always satisfies the equation, so skip it to make progress
+                if (i != startIndex && distanceMatrix[startIndex][i] + distanceMatrix[i][endIndex] == distanceMatrix[startIndex][endIndex]) {
+                    route.add(Location.of(LOCATION_IDS[i]));
                     startIndex = i;
                     break;
                 }
@@ -199,9 +323,42 @@ public class MapUtils {
         return route;
     }
 
+    // Applying A* with Landmarks and the Triangle inequality (ALT) on the walkway graph
+    public static List<Location> calculateRouteAlt(Location start, Location end, Location landmark) {
+        return routeVia(AltRouterHolder.ALT_ROUTER::route, start, end, landmark);
+    }
+
+    // Applying the multi-level cell overlay (CRP) on the walkway graph
+    public static List<Location> calculateRouteOverlay(Location start, Location end, Location landmark) {
+        return routeVia(OverlayGraphHolder.OVERLAY_GRAPH::route, start, end, landmark);
+    }
+
+    private static List<Location> routeVia(BiFunction<Location, Location, List<Location>> router,
+                                           Location start, Location end, Location landmark) {
+        if (landmark == null) {
+            return router.apply(start, end);
+        }
+
+        // Walk to the landmark first, then on to the end location
+        List<Location> route = router.apply(start, landmark);
+        List<Location> secondLeg = router.apply(landmark, end);
+        if (route.isEmpty() || secondLeg.isEmpty()) {
+            return new ArrayList<>();
+        }
+        route.addAll(secondLeg.subList(1, secondLeg.size()));
+        return route;
+    }
+
     public static List<Location> calculateRoute(Location start, Location end, Location landmark) {
         // Choose the algorithm based on requirements
-        // Here, we'll use Greedy for simplicity, but you can switch to Dynamic Programming
+        // Greedy is the default; start with -Dugnavigate.routing=alt or =overlay to use
+        // ALT or the cell overlay instead
+        if (ROUTING_MODE.equals("alt")) {
+            return calculateRouteAlt(start, end, landmark);
+        }
+        if (ROUTING_MODE.equals("overlay")) {
+            return calculateRouteOverlay(start, end, landmark);
+        }
         return calculateRouteGreedy(start, end, landmark);
     }
 }
@@ -0,0 +1,522 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+/*
+    |--------------------------------------------------------------------------
+    | OverlayGraph Class
+    |--------------------------------------------------------------------------
+    |
+    | The OverlayGraph class speeds up shortest-path queries on a CampusGraph in
+    | the style of Customizable Route Planning (CRP). The graph is split into
+    | nested cells over several levels, and every cell stores the shortest
+    | distances between its boundary nodes (a "clique"). A query only looks at
+    | original walkways near the start and end; everywhere else it jumps across
+    | whole cells using the cliques.
+    |
+    | Partition (depends only on the node positions, computed once):
+    | - The nodes are split in half along the longer side of their bounding box,
+    |   recursively, `levels * fanoutBits` times. Each node gets the bit code of
+    |   its halves; the level-l cell of a node is its code shifted right by
+    |   `l * fanoutBits`, so every cell is the union of 2^fanoutBits cells of the
+    |   level below. Level 0 has the smallest cells; the top level cells are the
+    |   regions served by RegionShard.
+    | - A node is a boundary node at level l when one of its walkways leads to a
+    |   different level-l cell.
+    |
+    | Customization (depends on the weights, rerun after they change):
+    | - Level 0 cliques come from Dijkstra searches on the original walkways
+    |   inside each cell. Level l cliques come from searches over the level l-1
+    |   cliques and the walkways between level l-1 cells, so each level reuses the
+    |   one below.
+    | - Cells of one level are independent and are customized in parallel. The
+    |   searches use arrays local to the cell, so their cost depends on the cell
+    |   size rather than on the whole graph.
+    | - New cliques are swapped in at the end, so queries running meanwhile keep
+    |   using a consistent set.
+    | - The cliques remember the CampusGraph weight version they were built
+    |   from; a query that finds the graph at a newer version customizes again
+    |   before searching, so cliques and walkway weights never disagree.
+    |
+    | Query:
+    | - Dijkstra's algorithm where a node in the same level-0 cell as the start or
+    |   end follows its walkways, and any other node uses the highest level at
+    |   which it shares a cell with neither: the clique of that cell plus the
+    |   walkways leaving it.
+    | - Clique hops are unpacked level by level: a search over the same nodes the
+    |   cell was customized with finds the hops inside it, and hops across child
+    |   cliques are unpacked again one level down until only walkways are left.
+    | - Query arrays are kept per thread and reset by a stamp, so a query costs
+    |   what it visits rather than the size of the graph.
+    |
+    | Methods:
+    | - `route(Location start, Location end)`: Shortest route as a list of nodes.
+    | - `customize()`: Recomputes all cliques. Queries call it themselves after
+    |   weight changes; calling it directly just moves that cost out of a query.
+    | - `partition(CampusGraph graph, int levels, int fanoutBits)`: The cell codes
+    |   alone, for callers that only need the regions. An overload takes the
+    |   node list instead of a graph, since the partition only uses positions.
+    | - `getRegion(int node)`, `getRegionCount()`: The top level cells.
+    | - `regions(List<Location> nodes)`: The top level cell of every node under
+    |   the default partition, which is how every RegionShard picks its nodes
+    |   without building the whole graph.
+    |
+    */
+
+public class OverlayGraph {
+    public static final int DEFAULT_LEVELS = 2;
+    public static final int DEFAULT_FANOUT_BITS = 1;
+    public static final int DEFAULT_REGIONS = 1 << DEFAULT_FANOUT_BITS;
+
+    private final CampusGraph graph;
+    private final int levels;
+    private final int fanoutBits;
+    private final int[] codes;
+
+    // Per level: boundary nodes of each cell, and each node's position in its cell's list
+    private final int[][][] boundary;
+    private final int[][] boundaryIndex;
+
+    // Per level: the nodes searched when customizing a cell, and each node's position there
+    private final int[][][] searchNodes;
+    private final int[][] searchIndex;
+
+    // Per level and cell: boundary-to-boundary distances, row-major
+    private volatile Cliques cliques;
+
+    public OverlayGraph(CampusGraph graph) {
+        this(graph, DEFAULT_LEVELS, DEFAULT_FANOUT_BITS);
+    }
+
+    public OverlayGraph(CampusGraph graph, int levels, int fanoutBits) {
+        this.graph = graph;
+        this.levels = levels;
+        this.fanoutBits = fanoutBits;
+        this.codes = partition(graph, levels, fanoutBits);
+
+        int n = graph.size();
+        boundary = new int[levels][][];
+        boundaryIndex = new int[levels][];
+        searchNodes = new int[levels][][];
+        searchIndex = new int[levels][];
+        for (int l = 0; l < levels; l++) {
+            int cells = cellCount(l);
+            List<List<Integer>> lists = new ArrayList<>();
+            for (int c = 0; c < cells; c++) {
+                lists.add(new ArrayList<>());
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.getFirstEdge(v); e < graph.getEdgeEnd(v); e++) {
+                    if (cell(l, graph.getEdgeTarget(e)) != cell(l, v)) {
+                        lists.get(cell(l, v)).add(v);
+                        break;
+                    }
+                }
+            }
+            boundary[l] = new int[cells][];
+            boundaryIndex[l] = new int[n];
+            Arrays.fill(boundaryIndex[l], -1);
+            for (int c = 0; c < cells; c++) {
+                boundary[l][c] = toArray(lists.get(c));
+                for (int i = 0; i < boundary[l][c].length; i++) {
+                    boundaryIndex[l][boundary[l][c][i]] = i;
+                }
+            }
+
+            // Level 0 searches every node of the cell; higher levels only the
+            // boundary nodes of the child cells
+            searchNodes[l] = new int[cells][];
+            searchIndex[l] = new int[n];
+            Arrays.fill(searchIndex[l], -1);
+            for (int c = 0; c < cells; c++) {
+                List<Integer> members = new ArrayList<>();
+                if (l == 0) {
+                    for (int v = 0; v < n; v++) {
+                        if (cell(0, v) == c) {
+                            members.add(v);
+                        }
+                    }
+                } else {
+                    for (int child = c << fanoutBits; child < (c + 1) << fanoutBits; child++) {
+                        for (int v : boundary[l - 1][child]) {
+                            members.add(v);
+                        }
+                    }
+                }
+                searchNodes[l][c] = toArray(members);
+                for (int i = 0; i < searchNodes[l][c].length; i++) {
+                    searchIndex[l][searchNodes[l][c][i]] = i;
+                }
+            }
+        }
+        customize();
+    }
+
+    public static int[] partition(CampusGraph graph, int levels, int fanoutBits) {
+        List<Location> nodes = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            nodes.add(graph.getNode(v));
+        }
+        return partition(nodes, levels, fanoutBits);
+    }
+
+    // Codes in the order of the given nodes; only their positions are used
+    public static int[] partition(List<Location> nodes, int levels, int fanoutBits) {
+        int n = nodes.size();
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        int[] codes = new int[n];
+        bisect(nodes, order, 0, n, levels * fanoutBits, 0, codes);
+        return codes;
+    }
+
+    private static void bisect(List<Location> nodes, Integer[] order, int from, int to, int depth, int code, int[] codes) {
+        if (depth == 0) {
+            for (int i = from; i < to; i++) {
+                codes[order[i]] = code;
+            }
+            return;
+        }
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            Location location = nodes.get(order[i]);
+            minLat = Math.min(minLat, location.getLatitude());
+            maxLat = Math.max(maxLat, location.getLatitude());
+            minLon = Math.min(minLon, location.getLongitude());
+            maxLon = Math.max(maxLon, location.getLongitude());
+        }
+        double cosLat = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        boolean byLatitude = maxLat - minLat >= (maxLon - minLon) * cosLat;
+        Arrays.sort(order, from, to, (a, b) -> byLatitude
+                ? Double.compare(nodes.get(a).getLatitude(), nodes.get(b).getLatitude())
+                : Double.compare(nodes.get(a).getLongitude(), nodes.get(b).getLongitude()));
+        int middle = (from + to) >>> 1;
+        bisect(nodes, order, from, middle, depth - 1, code << 1, codes);
+        bisect(nodes, order, middle, to, depth - 1, (code << 1) | 1, codes);
+    }
+
+    // Top level cell of every node with the default partition, as used by RegionShard
+    public static int[] regions(List<Location> nodes) {
+        int[] codes = partition(nodes, DEFAULT_LEVELS, DEFAULT_FANOUT_BITS);
+        for (int v = 0; v < codes.length; v++) {
+            codes[v] >>>= (DEFAULT_LEVELS - 1) * DEFAULT_FANOUT_BITS;
+        }
+        return codes;
+    }
+
+    public int getRegionCount() {
+        return cellCount(levels - 1);
+    }
+
+    public int getRegion(int node) {
+        return cell(levels - 1, node);
+    }
+
+    public synchronized void customize() {
+        // Read before the searches, so a change made meanwhile triggers another run
+        int weightVersion = graph.getWeightVersion();
+        double[][][] next = new double[levels][][];
+        for (int l = 0; l < levels; l++) {
+            int level = l;
+            next[l] = new double[cellCount(l)][];
+            IntStream.range(0, cellCount(l)).parallel().forEach(c -> next[level][c] = customizeCell(next, level, c));
+        }
+        cliques = new Cliques(next, weightVersion);
+    }
+
+    private double[][][] currentCliques() {
+        Cliques current = cliques;
+        if (current.weightVersion != graph.getWeightVersion()) {
+            synchronized (this) {
+                if (cliques.weightVersion != graph.getWeightVersion()) {
+                    customize();
+                }
+                current = cliques;
+            }
+        }
+        return current.byLevel;
+    }
+
+    private static class Cliques {
+        final double[][][] byLevel;
+        final int weightVersion;
+
+        Cliques(double[][][] byLevel, int weightVersion) {
+            this.byLevel = byLevel;
+            this.weightVersion = weightVersion;
+        }
+    }
+
+    private double[] customizeCell(double[][][] next, int l, int c) {
+        int[] cellBoundary = boundary[l][c];
+        int k = cellBoundary.length;
+        double[] clique = new double[k * k];
+        CellSearch search = new CellSearch(searchNodes[l][c].length);
+        for (int i = 0; i < k; i++) {
+            search.run(next, l, c, searchIndex[l][cellBoundary[i]], -1);
+            for (int j = 0; j < k; j++) {
+                clique[i * k + j] = search.distance[searchIndex[l][cellBoundary[j]]];
+            }
+        }
+        return clique;
+    }
+
+    public List<Location> route(Location start, Location end) {
+        int s = graph.indexOf(start);
+        int t = graph.indexOf(end);
+        double[][][] current = currentCliques();
+        QueryState state = QUERY_STATE.get();
+        state.reset(graph.size());
+        double[] distance = state.distance;
+        int[] parent = state.parent;
+        int[] parentLevel = state.parentLevel;
+        CampusGraph.NodeHeap heap = state.heap;
+
+        state.touch(s);
+        distance[s] = 0;
+        parent[s] = -1;
+        parentLevel[s] = -1;
+        heap.push(s, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            if (u == t) {
+                break;
+            }
+            if (state.isSettled(u)) {
+                continue;
+            }
+            state.settle(u);
+
+            int level = queryLevel(u, s, t);
+            if (level >= 0 && boundaryIndex[level][u] < 0) {
+                // Only reachable as the start of the search; walk out of the cell
+                level = -1;
+            }
+            // A clique is shortest inside its cell, so a node reached through
+            // the clique has nothing to add by relaxing the same clique again
+            if (level >= 0 && parentLevel[u] < 0) {
+                int c = cell(level, u);
+                int[] cellBoundary = boundary[level][c];
+                double[] clique = current[level][c];
+                int row = boundaryIndex[level][u] * cellBoundary.length;
+                for (int j = 0; j < cellBoundary.length; j++) {
+                    int w = cellBoundary[j];
+                    state.touch(w);
+                    double candidate = distance[u] + clique[row + j];
+                    if (candidate < distance[w]) {
+                        distance[w] = candidate;
+                        parent[w] = u;
+                        parentLevel[w] = level;
+                        heap.push(w, candidate);
+                    }
+                }
+            }
+            for (int e = graph.getFirstEdge(u); e < graph.getEdgeEnd(u); e++) {
+                int w = graph.getEdgeTarget(e);
+                if (level >= 0 && cell(level, w) == cell(level, u)) {
+                    continue;
+                }
+                state.touch(w);
+                double candidate = distance[u] + graph.getEdgeWeight(e);
+                if (candidate < distance[w]) {
+                    distance[w] = candidate;
+                    parent[w] = u;
+                    parentLevel[w] = -1;
+                    heap.push(w, candidate);
+                }
+            }
+        }
+
+        List<Location> route = new ArrayList<>();
+        state.touch(t);
+        if (distance[t] == Double.POSITIVE_INFINITY) {
+            return route;
+        }
+        List<Integer> hops = new ArrayList<>();
+        List<Integer> hopLevels = new ArrayList<>();
+        for (int v = t; v != -1; v = parent[v]) {
+            hops.add(v);
+            hopLevels.add(parentLevel[v]);
+        }
+        Collections.reverse(hops);
+        Collections.reverse(hopLevels);
+        List<Integer> nodes = new ArrayList<>();
+        nodes.add(s);
+        for (int i = 1; i < hops.size(); i++) {
+            if (hopLevels.get(i) < 0) {
+                nodes.add(hops.get(i));
+            } else {
+                unpack(current, hops.get(i - 1), hops.get(i), hopLevels.get(i), nodes);
+            }
+        }
+        for (int v : nodes) {
+            route.add(graph.getNode(v));
+        }
+        return route;
+    }
+
+    // Highest level at which the node shares a cell with neither the start nor the end
+    private int queryLevel(int node, int s, int t) {
+        for (int l = levels - 1; l >= 0; l--) {
+            if (cell(l, node) != cell(l, s) && cell(l, node) != cell(l, t)) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    // Appends the nodes after `from` on the shortest path to `to` inside their
+    // level-l cell. The search runs over the same nodes and cliques the cell was
+    // customized with; hops across a child clique are unpacked one level down.
+    private void unpack(double[][][] current, int from, int to, int l, List<Integer> out) {
+        int c = cell(l, from);
+        int[] nodes = searchNodes[l][c];
+        CellSearch search = new CellSearch(nodes.length);
+        int target = searchIndex[l][to];
+        search.run(current, l, c, searchIndex[l][from], target);
+
+        List<Integer> path = new ArrayList<>();
+        for (int i = target; i != -1; i = search.parent[i]) {
+            path.add(nodes[i]);
+        }
+        Collections.reverse(path);
+        for (int i = 1; i < path.size(); i++) {
+            int a = path.get(i - 1);
+            int b = path.get(i);
+            if (l > 0 && cell(l - 1, a) == cell(l - 1, b)) {
+                unpack(current, a, b, l - 1, out);
+            } else {
+                out.add(b);
+            }
+        }
+    }
+
+    // Dijkstra inside one cell, over arrays indexed by position in searchNodes
+    private class CellSearch {
+        final double[] distance;
+        final int[] parent;
+        final boolean[] settled;
+        final CampusGraph.NodeHeap heap;
+
+        CellSearch(int size) {
+            distance = new double[size];
+            parent = new int[size];
+            settled = new boolean[size];
+            heap = new CampusGraph.NodeHeap(size);
+        }
+
+        // Stops early when target is not -1
+        void run(double[][][] levelCliques, int l, int c, int source, int target) {
+            int[] nodes = searchNodes[l][c];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(settled, false);
+            heap.clear();
+            distance[source] = 0;
+            parent[source] = -1;
+            heap.push(source, 0);
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                if (u == target) {
+                    return;
+                }
+                if (settled[u]) {
+                    continue;
+                }
+                settled[u] = true;
+                int v = nodes[u];
+                if (l > 0 && (parent[u] == -1 || cell(l - 1, nodes[parent[u]]) != cell(l - 1, v))) {
+                    // Across the child cell through its clique, unless it was just crossed
+                    int child = cell(l - 1, v);
+                    int[] childBoundary = boundary[l - 1][child];
+                    double[] childClique = levelCliques[l - 1][child];
+                    int row = boundaryIndex[l - 1][v] * childBoundary.length;
+                    for (int j = 0; j < childBoundary.length; j++) {
+                        relax(u, searchIndex[l][childBoundary[j]], distance[u] + childClique[row + j]);
+                    }
+                }
+                for (int e = graph.getFirstEdge(v); e < graph.getEdgeEnd(v); e++) {
+                    int w = graph.getEdgeTarget(e);
+                    if (cell(l, w) != c || (l > 0 && cell(l - 1, w) == cell(l - 1, v))) {
+                        continue;
+                    }
+                    relax(u, searchIndex[l][w], distance[u] + graph.getEdgeWeight(e));
+                }
+            }
+        }
+
+        private void relax(int from, int node, double candidate) {
+            if (candidate < distance[node]) {
+                distance[node] = candidate;
+                parent[node] = from;
+                heap.push(node, candidate);
+            }
+        }
+    }
+
+    // Per-thread query arrays, reset in O(1) by bumping a stamp instead of
+    // refilling arrays the size of the graph on every query
+    private static final ThreadLocal<QueryState> QUERY_STATE = ThreadLocal.withInitial(QueryState::new);
+
+    private static class QueryState {
+        double[] distance = new double[0];
+        int[] parent = new int[0];
+        int[] parentLevel = new int[0];
+        int[] touched = new int[0];
+        int[] settled = new int[0];
+        int stamp;
+        CampusGraph.NodeHeap heap = new CampusGraph.NodeHeap(0);
+
+        void reset(int size) {
+            if (distance.length < size) {
+                distance = new double[size];
+                parent = new int[size];
+                parentLevel = new int[size];
+                touched = new int[size];
+                settled = new int[size];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(touched, 0);
+                Arrays.fill(settled, 0);
+                stamp = 1;
+            }
+            heap.clear();
+        }
+
+        // Gives the node an infinite distance the first time it is seen in this query
+        void touch(int node) {
+            if (touched[node] != stamp) {
+                touched[node] = stamp;
+                distance[node] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        boolean isSettled(int node) {
+            return settled[node] == stamp;
+        }
+
+        void settle(int node) {
+            settled[node] = stamp;
+        }
+    }
+
+    private int cell(int level, int node) {
+        return codes[node] >>> (level * fanoutBits);
+    }
+
+    private int cellCount(int level) {
+        return 1 << ((levels - level) * fanoutBits);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
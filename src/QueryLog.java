@@ -0,0 +1,247 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/*
+    |--------------------------------------------------------------------------
+    | QueryLog Class
+    |--------------------------------------------------------------------------
+    |
+    | The QueryLog class records route queries, as they were resolved through
+    | MapUtils.getLocationByName and MapUtils.getLandmarkByName, to a compact
+    | binary log so that real traffic can later be replayed by ReplayHarness.
+    |
+    | Recording:
+    | - Recording is enabled by starting the application with the system property
+    |   `-Dugnavigate.queryLog=<file>`. Without it, `record(...)` does nothing.
+    | - `record(Location start, Location end, Location landmark)` appends one query
+    |   with the current timestamp. It is safe to call from any thread.
+    |
+    | File Format:
+    | - A 4-byte magic number followed by a version byte.
+    | - One record per query: the milliseconds elapsed since the previous record
+    |   (for the first record, since the epoch, so the log keeps the wall-clock
+    |   time of the traffic), then the start, end and landmark names, all as
+    |   unsigned varints.
+    | - Names are written once. A name reference of 0 means "no location", a known
+    |   name is referenced by its id, and a new name uses the next free id and is
+    |   followed by the name itself in modified UTF-8.
+    |
+    | Nested Classes:
+    | - `Writer`: Appends queries to a log.
+    | - `Reader`: Streams queries back from a log, one `Query` at a time.
+    | - `Query`: A recorded query with its wall-clock timestamp (epoch
+    |   milliseconds) and location names.
+    |
+    */
+
+public class QueryLog {
+    private static final int MAGIC = 0x55475141; // "UGQA"
+    private static final int VERSION = 1;
+
+    private static final Writer RECORDER = openRecorder();
+
+    public static void record(Location start, Location end, Location landmark) {
+        if (RECORDER == null) {
+            return;
+        }
+        try {
+            RECORDER.write(System.currentTimeMillis(), nameOf(start), nameOf(end), nameOf(landmark));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String nameOf(Location location) {
+        return location == null ? null : location.getName();
+    }
+
+    private static Writer openRecorder() {
+        String path = System.getProperty("ugnavigate.queryLog");
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            Writer writer = new Writer(Files.newOutputStream(Paths.get(path)));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+            return writer;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static class Query {
+        private final long timestamp;
+        private final String start;
+        private final String end;
+        private final String landmark;
+
+        public Query(long timestamp, String start, String end, String landmark) {
+            this.timestamp = timestamp;
+            this.start = start;
+            this.end = end;
+            this.landmark = landmark;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+
+        public String getLandmark() {
+            return landmark;
+        }
+    }
+
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> ids = new HashMap<>();
+        // The first record's delta is then its wall-clock time
+        private long lastTimestamp = 0;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        public synchronized void write(long timestamp, String start, String end, String landmark) throws IOException {
+            long delta = Math.max(0, timestamp - lastTimestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            writeVarint(delta);
+            writeName(start);
+            writeName(end);
+            writeName(landmark);
+        }
+
+        private void writeName(String name) throws IOException {
+            if (name == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer id = ids.get(name);
+            if (id != null) {
+                writeVarint(id);
+                return;
+            }
+            id = ids.size() + 1;
+            ids.put(name, id);
+            writeVarint(id);
+            out.writeUTF(name);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> names = new ArrayList<>();
+        private long timestamp;
+
+        public Reader(Path path) throws IOException {
+            this(Files.newInputStream(path));
+        }
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a query log");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported query log version: " + version);
+            }
+        }
+
+        /**
+         * Returns the next query, or null at the end of the log. Timestamps are
+         * milliseconds since the epoch.
+         */
+        public Query next() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            timestamp += readVarint(first);
+            return new Query(timestamp, readName(), readName(), readName());
+        }
+
+        private String readName() throws IOException {
+            int id = (int) readVarint(readByte());
+            if (id == 0) {
+                return null;
+            }
+            if (id == names.size() + 1) {
+                names.add(in.readUTF());
+            } else if (id > names.size()) {
+                throw new IOException("Corrupt query log: unknown name id " + id);
+            }
+            return names.get(id - 1);
+        }
+
+        private long readVarint(int b) throws IOException {
+            long value = b & 0x7F;
+            int shift = 7;
+            while ((b & 0x80) != 0) {
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated query log");
+            }
+            return b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
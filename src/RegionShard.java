@@ -0,0 +1,290 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+/*
+    |--------------------------------------------------------------------------
+    | RegionShard Class
+    |--------------------------------------------------------------------------
+    |
+    | The RegionShard class serves one region (top level cell of the
+    | OverlayGraph partition) of the campus graph from its own JVM process.
+    | Together with ShardCoordinator it answers shortest-route queries without
+    | any process holding the whole graph's routing state: a shard keeps only
+    | the walkways inside its region, and the coordinator only sees the overlay.
+    |
+    | Usage:
+    |   java RegionShard <region> <port>
+    |
+    | State:
+    | - The subgraph of the region, with node numbers local to the shard.
+    | - The boundary nodes: region nodes with a walkway into another region.
+    | - The cut edges: those walkways, as (boundary id, foreign id, weight).
+    | - The clique: shortest distances inside the region between every pair of
+    |   boundary nodes, recomputed in parallel (one Dijkstra search per boundary
+    |   node) whenever a weight inside the region changes.
+    | Nodes are identified on the wire by their global location id.
+    |
+    | Protocol (loopback TCP, DataInput/DataOutput encoding, one thread per
+    | connection, any number of requests per connection):
+    | - OVERLAY: region, boundary ids, clique (k * k doubles, row-major), cut
+    |   edges. This is all a coordinator needs to route across the region.
+    | - DISTANCES <id>: -1 if the node is not in this region; otherwise the
+    |   distances from the node to every boundary node, in boundary order.
+    | - PATH <from> <to>: distance and node ids of the shortest path inside the
+    |   region, used to unpack overlay hops.
+    | - SET_WEIGHT <u> <v> <weight>: changes a walkway weight inside the region
+    |   or on one of its cut edges, and replies whether this shard had it.
+    |
+    | A shard reads the location table and walkway list from MapUtils, which
+    | every process needs to agree on the global ids, but only builds a graph of
+    | its own region; the full campus graph and its routers are never built.
+    |
+    */
+
+public class RegionShard {
+    static final int OVERLAY = 1;
+    static final int DISTANCES = 2;
+    static final int PATH = 3;
+    static final int SET_WEIGHT = 4;
+
+    private final int region;
+    private final CampusGraph graph;
+    private final int[] boundaryNodes;
+    private final int[] cutFrom;
+    private final int[] cutTo;
+    private final double[] cutWeights;
+    private volatile double[] clique;
+
+    public RegionShard(List<Location> places, List<Location[]> walkways, int region) {
+        int[] regions = OverlayGraph.regions(places);
+        int[] regionOfId = new int[LocationStore.size()];
+        List<Location> keep = new ArrayList<>();
+        for (int i = 0; i < places.size(); i++) {
+            regionOfId[places.get(i).getId()] = regions[i];
+            if (regions[i] == region) {
+                keep.add(places.get(i));
+            }
+        }
+        if (keep.isEmpty()) {
+            throw new IllegalArgumentException("No nodes in region " + region);
+        }
+
+        List<Location[]> inside = new ArrayList<>();
+        List<Location[]> cuts = new ArrayList<>();
+        for (Location[] walkway : walkways) {
+            boolean fromInside = regionOfId[walkway[0].getId()] == region;
+            boolean toInside = regionOfId[walkway[1].getId()] == region;
+            if (fromInside && toInside) {
+                inside.add(walkway);
+            } else if (fromInside) {
+                cuts.add(walkway);
+            } else if (toInside) {
+                cuts.add(new Location[]{walkway[1], walkway[0]});
+            }
+        }
+        this.region = region;
+        this.graph = new CampusGraph(keep, inside);
+
+        List<Integer> boundary = new ArrayList<>();
+        cutFrom = new int[cuts.size()];
+        cutTo = new int[cuts.size()];
+        cutWeights = new double[cuts.size()];
+        for (int i = 0; i < cutFrom.length; i++) {
+            Location from = cuts.get(i)[0];
+            cutFrom[i] = from.getId();
+            cutTo[i] = cuts.get(i)[1].getId();
+            cutWeights[i] = MapUtils.calculateDistance(cutFrom[i], cutTo[i]);
+            if (!boundary.contains(graph.indexOf(from))) {
+                boundary.add(graph.indexOf(from));
+            }
+        }
+        boundaryNodes = new int[boundary.size()];
+        for (int i = 0; i < boundaryNodes.length; i++) {
+            boundaryNodes[i] = boundary.get(i);
+        }
+        customize();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java RegionShard <region> <port>");
+            System.exit(2);
+            return;
+        }
+        List<Location[]> walkways = MapUtils.getWalkways();
+        RegionShard shard = new RegionShard(MapUtils.getAllPlaces(), walkways, Integer.parseInt(args[0]));
+        shard.serve(Integer.parseInt(args[1]));
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Region " + region + ": " + graph.size() + " nodes, "
+                    + boundaryNodes.length + " boundary nodes, listening on " + server.getLocalPort());
+            while (true) {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> handle(socket), "shard-" + region + "-connection");
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            while (true) {
+                int op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                switch (op) {
+                    case OVERLAY:
+                        writeOverlay(out);
+                        break;
+                    case DISTANCES:
+                        writeDistances(out, in.readInt());
+                        break;
+                    case PATH:
+                        writePath(out, in.readInt(), in.readInt());
+                        break;
+                    case SET_WEIGHT:
+                        out.writeBoolean(setWeight(in.readInt(), in.readInt(), in.readDouble()));
+                        break;
+                    default:
+                        throw new IOException("Unknown request " + op);
+                }
+                out.flush();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // A malformed request closes its connection; the shard keeps serving
+            System.err.println("Region " + region + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void writeOverlay(DataOutputStream out) throws IOException {
+        double[] current = clique;
+        out.writeInt(region);
+        out.writeInt(boundaryNodes.length);
+        for (int node : boundaryNodes) {
+            out.writeInt(graph.getNode(node).getId());
+        }
+        for (double distance : current) {
+            out.writeDouble(distance);
+        }
+        out.writeInt(cutFrom.length);
+        for (int i = 0; i < cutFrom.length; i++) {
+            out.writeInt(cutFrom[i]);
+            out.writeInt(cutTo[i]);
+            out.writeDouble(cutWeights[i]);
+        }
+    }
+
+    private void writeDistances(DataOutputStream out, int id) throws IOException {
+        int node = localNode(id);
+        if (node < 0) {
+            out.writeInt(-1);
+            return;
+        }
+        double[] distance = graph.shortestDistances(node);
+        out.writeInt(boundaryNodes.length);
+        for (int b : boundaryNodes) {
+            out.writeDouble(distance[b]);
+        }
+    }
+
+    private void writePath(DataOutputStream out, int fromId, int toId) throws IOException {
+        int from = localNode(fromId);
+        int to = localNode(toId);
+        if (from < 0 || to < 0) {
+            throw new IOException("Path request outside region " + region + ": " + fromId + " > " + toId);
+        }
+        List<Location> path = graph.shortestPath(from, to, (u, t) -> 0);
+        out.writeDouble(path.isEmpty() ? Double.POSITIVE_INFINITY : pathWeight(path));
+        out.writeInt(path.size());
+        for (Location location : path) {
+            out.writeInt(location.getId());
+        }
+    }
+
+    // Sum of the current walkway weights, which may differ from the straight-line distances
+    private double pathWeight(List<Location> path) {
+        double total = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int u = graph.indexOf(path.get(i - 1));
+            int v = graph.indexOf(path.get(i));
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.getFirstEdge(u); e < graph.getEdgeEnd(u); e++) {
+                if (graph.getEdgeTarget(e) == v) {
+                    best = Math.min(best, graph.getEdgeWeight(e));
+                }
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // Cut edge updates only change what OVERLAY reports; inside the region they
+    // also change the clique. Weights below the straight-line distance are
+    // rejected for cut edges as CampusGraph rejects them inside the region.
+    private synchronized boolean setWeight(int u, int v, double weight) {
+        if (u < 0 || v < 0 || u >= LocationStore.size() || v >= LocationStore.size()
+                || !(weight >= MapUtils.calculateDistance(u, v))) {
+            throw new IllegalArgumentException("Invalid weight " + weight + " for walkway " + u + " > " + v);
+        }
+        boolean found = false;
+        for (int i = 0; i < cutFrom.length; i++) {
+            if ((cutFrom[i] == u && cutTo[i] == v) || (cutFrom[i] == v && cutTo[i] == u)) {
+                cutWeights[i] = weight;
+                found = true;
+            }
+        }
+        int a = localNode(u);
+        int b = localNode(v);
+        if (!found && a >= 0 && b >= 0 && hasWalkway(a, b)) {
+            graph.setWeight(a, b, weight);
+            customize();
+            found = true;
+        }
+        return found;
+    }
+
+    private boolean hasWalkway(int a, int b) {
+        for (int e = graph.getFirstEdge(a); e < graph.getEdgeEnd(a); e++) {
+            if (graph.getEdgeTarget(e) == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void customize() {
+        int k = boundaryNodes.length;
+        double[] next = new double[k * k];
+        IntStream.range(0, k).parallel().forEach(i -> {
+            double[] distance = graph.shortestDistances(boundaryNodes[i]);
+            for (int j = 0; j < k; j++) {
+                next[i * k + j] = distance[boundaryNodes[j]];
+            }
+        });
+        clique = next;
+    }
+
+    private int localNode(int id) {
+        if (id < 0 || id >= LocationStore.size() || !graph.contains(Location.of(id))) {
+            return -1;
+        }
+        return graph.indexOf(Location.of(id));
+    }
+}
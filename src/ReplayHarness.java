@@ -0,0 +1,278 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+/*
+    |--------------------------------------------------------------------------
+    | ReplayHarness Class
+    |--------------------------------------------------------------------------
+    |
+    | The ReplayHarness class replays a query log recorded by QueryLog against
+    | the routing layer (MapUtils.calculateRoute) in-process, and reports the
+    | throughput, latency percentiles and garbage collection pauses observed.
+    |
+    | Usage:
+    |   java ReplayHarness <log> [--speed <multiple>] [--threads <n>]
+    |
+    | Options:
+    | - `--speed`: Replays at the given multiple of the recorded rate (default 1).
+    |   A speed of 0 replays as fast as possible.
+    | - `--threads`: Number of worker threads (defaults to the number of cores).
+    |
+    | Measurement:
+    | - Each query is scheduled at its recorded offset divided by the speed, and
+    |   its latency is measured from that scheduled time rather than from when a
+    |   worker picked it up, so a stalled run shows up as queueing delay instead of
+    |   being hidden.
+    | - Latencies go into a log-linear histogram of fixed size, so the harness uses
+    |   constant memory however long the log is.
+    | - GC pauses are collected from the collectors' notifications while replaying.
+    |
+    */
+
+public class ReplayHarness {
+    private static final int MAX_IN_FLIGHT_PER_THREAD = 64;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java ReplayHarness <log> [--speed <multiple>] [--threads <n>]");
+            System.exit(2);
+            return;
+        }
+
+        String log = args[0];
+        double speed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--speed":
+                    speed = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        try (QueryLog.Reader reader = new QueryLog.Reader(Paths.get(log))) {
+            System.out.print(new ReplayHarness(Math.max(1, threads), speed).replay(reader));
+        }
+    }
+
+    private final int threads;
+    private final double speed;
+
+    public ReplayHarness(int threads, double speed) {
+        this.threads = threads;
+        this.speed = speed;
+    }
+
+    public String replay(QueryLog.Reader reader) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * MAX_IN_FLIGHT_PER_THREAD);
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong failures = new AtomicLong();
+        GcMonitor gc = new GcMonitor();
+
+        gc.start();
+        long startNanos = System.nanoTime();
+        long firstTimestamp = -1;
+        long queries = 0;
+        try {
+            QueryLog.Query query;
+            while ((query = reader.next()) != null) {
+                if (firstTimestamp < 0) {
+                    firstTimestamp = query.getTimestamp();
+                }
+                long scheduled;
+                if (speed <= 0) {
+                    scheduled = System.nanoTime();
+                } else {
+                    scheduled = startNanos + (long) ((query.getTimestamp() - firstTimestamp) * 1_000_000L / speed);
+                    long wait;
+                    while ((wait = scheduled - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+
+                inFlight.acquire();
+                QueryLog.Query current = query;
+                long intended = scheduled;
+                executor.execute(() -> {
+                    try {
+                        if (!route(current)) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        histogram.record(System.nanoTime() - intended);
+                        inFlight.release();
+                    }
+                });
+                queries++;
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        gc.stop();
+
+        return report(queries, failures.get(), elapsedNanos, histogram, gc);
+    }
+
+    private static boolean route(QueryLog.Query query) {
+        Location start = MapUtils.getLocationByName(query.getStart());
+        Location end = MapUtils.getLocationByName(query.getEnd());
+        Location landmark = query.getLandmark() == null ? null : MapUtils.getLandmarkByName(query.getLandmark());
+        if (start == null || end == null) {
+            return false;
+        }
+        return !MapUtils.calculateRoute(start, end, landmark).isEmpty();
+    }
+
+    private String report(long queries, long failures, long elapsedNanos, LatencyHistogram histogram, GcMonitor gc) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT, "Queries:     %d (%d failed)%n", queries, failures));
+        result.append(String.format(Locale.ROOT, "Elapsed:     %.3f s at %s speed on %d threads%n",
+                seconds, speed > 0 ? speed + "x" : "maximum", threads));
+        result.append(String.format(Locale.ROOT, "Throughput:  %.1f queries/s%n", seconds > 0 ? queries / seconds : 0));
+        result.append("Latency (us):");
+        double[] percentiles = {50, 90, 99, 99.9};
+        for (double p : percentiles) {
+            result.append(String.format(Locale.ROOT, " p%s=%d", p == (long) p ? String.valueOf((long) p) : String.valueOf(p),
+                    histogram.percentile(p) / 1000));
+        }
+        result.append(String.format(Locale.ROOT, " max=%d%n", histogram.max() / 1000));
+        result.append(String.format(Locale.ROOT, "GC pauses:   %d, total %d ms, max %d ms%n",
+                gc.pauses.get(), gc.totalMillis.get(), gc.maxMillis.get()));
+        return result.toString();
+    }
+
+    /**
+     * Log-linear histogram of nanosecond values: 16 linear sub-buckets for every
+     * power of two, giving roughly 6% precision with a fixed 8 KiB footprint.
+     */
+    private static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(index(value));
+            long previous;
+            while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+                // retry
+            }
+        }
+
+        long percentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            long target = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target && seen > 0) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return 0;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long sub = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+
+    private static class GcMonitor implements NotificationListener {
+        private final AtomicLong pauses = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        void start() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) bean;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        void stop() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (Exception e) {
+                    // already removed
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            // Concurrent cycles run alongside the application and are not pauses
+            if (info.getGcName().contains("Cycles") || info.getGcAction().contains("concurrent")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            pauses.incrementAndGet();
+            totalMillis.addAndGet(duration);
+            long previous;
+            while (duration > (previous = maxMillis.get()) && !maxMillis.compareAndSet(previous, duration)) {
+                // retry
+            }
+        }
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
     |
     | Constructor:
     | - ResultWindow(String start, String end, String landmark, List<Location> nearbyLandmarks,
-    |                String algorithmUsed, String timeComplexity, List<Location> route):
+    |                String algorithmUsed, String timeComplexity, RouteResult route):
     |   Initializes the ResultWindow with the following parameters:
     |   - `start`: The name of the starting location.
     |   - `end`: The name of the destination location.
@@ -21,8 +21,8 @@ import java.util.List;
     |     to the starting location.
     |   - `algorithmUsed`: The name of the algorithm used to calculate the route.
     |   - `timeComplexity`: The time complexity of the algorithm used.
-    |   - `route`: A list of locations that make up the optimal route from the start
-    |     to the end location.
+    |   - `route`: The RouteResult for the optimal route from the start to the end
+    |     location. Its text is only rendered when the window is built.
     |
     | Fields:
     | - `backgroundLabel`: A JLabel component that displays a background image for
@@ -32,12 +32,12 @@ import java.util.List;
     |
     | Methods:
     | - `buildResultText(String start, String end, String landmark, List<Location> landmarks,
-    |                    String algorithmUsed, String timeComplexity, List<Location> route)`:
+    |                    String algorithmUsed, String timeComplexity, RouteResult route)`:
     |   Generates a formatted text string that includes:
     |   - The optimal route from the start location to the end location.
     |   - The algorithm used for route calculation.
     |   - The time complexity of the algorithm.
-    |   - The route details, including any landmarks passed through.
+    |   - The route details: total distance and turn-by-turn directions.
     |   - A list of nearby landmarks if any are found.
     |
     | Purpose:
@@ -49,7 +49,7 @@ import java.util.List;
     */
 
 public class ResultWindow extends JFrame {
-    public ResultWindow(String start, String end, String landmark, List<Location> nearbyLandmarks, String algorithmUsed, String timeComplexity, List<Location> route) {
+    public ResultWindow(String start, String end, String landmark, List<Location> nearbyLandmarks, String algorithmUsed, String timeComplexity, RouteResult route) {
         setTitle("Route Results");
         setSize(800, 600);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -85,20 +85,15 @@ public class ResultWindow extends JFrame {
         add(backgroundLabel);
     }
 
-    private String buildResultText(String start, String end, String landmark, List<Location> landmarks, String algorithmUsed, String timeComplexity, List<Location> route) {
+    private String buildResultText(String start, String end, String landmark, List<Location> landmarks, String algorithmUsed, String timeComplexity, RouteResult route) {
         StringBuilder result = new StringBuilder();
         result.append("Optimal routes from ").append(start).append(" to ").append(end).append(":\n");
         result.append("Algorithm used: ").append(algorithmUsed).append("\n");
         result.append("Time Complexity: ").append(timeComplexity).append("\n");
-
-        if (route.isEmpty()) {
-            result.append("No routes found.\n");
-        } else {
-            result.append("Routes:\n");
-            for (int i = 0; i < route.size(); i++) {
-                result.append((i + 1)).append(". Route ").append((char) ('A' + i)).append(" (Passes through: ").append(landmark).append(")\n");
-            }
+        if (landmark != null) {
+            result.append("Landmark: ").append(landmark).append("\n");
         }
+        result.append("\n").append(route.toText());
 
         if (!landmarks.isEmpty()) {
             result.append("\nNearby landmarks:\n");
@@ -33,10 +33,6 @@ import javax.swing.SwingWorker; // Correct import for SwingWorker
     | - `showDevTeamsDialog()`:
     |   Shows a dialog with developer credits.
     |
-    | - `buildResultText(String start, String end, String landmark, List<Location> landmarks,
-    |                    String algorithmUsed, String timeComplexity, List<Location> route)`:
-    |   Constructs a text summary of the route, landmarks, and algorithm details.
-    |
     | - `main(String[] args)`:
     |   Launches the RouteFinder application.
     |
@@ -144,16 +140,17 @@ public class RouteFinder extends JFrame {
                 Location startLocation = MapUtils.getLocationByName(start);
                 Location endLocation = MapUtils.getLocationByName(end);
                 Location landmarkLocation = MapUtils.getLandmarkByName(landmark);
+                QueryLog.record(startLocation, endLocation, landmarkLocation);
+
+                SwingWorker<RouteResult, Void> worker = new SwingWorker<RouteResult, Void>() {
+                    private List<Location> nearbyLandmarks;
 
-                SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
                     @Override
-                    protected String doInBackground() throws Exception {
+                    protected RouteResult doInBackground() throws Exception {
                         ProgressMonitor progressMonitor = new ProgressMonitor(RouteFinder.this, "Calculating Route...", "", 0, 100);
                         progressMonitor.setProgress(0);
 
-                        List<Location> nearbyLandmarks = MapUtils.getNearbyLandmarks(startLocation);
-                        String algorithmUsed = "Dijkstra's Algorithm";
-                        String timeComplexity = "O((V + E) log V)";
+                        nearbyLandmarks = MapUtils.getNearbyLandmarks(startLocation);
 
                         // Simulate computation time
                         for (int i = 0; i <= 100; i += 10) {
@@ -161,15 +158,14 @@ public class RouteFinder extends JFrame {
                             progressMonitor.setProgress(i);
                         }
 
-                        List<Location> route = MapUtils.calculateRoute(startLocation, endLocation, landmarkLocation);
-                        return buildResultText(start, end, landmark, nearbyLandmarks, algorithmUsed, timeComplexity, route);
+                        return new RouteResult(MapUtils.calculateRoute(startLocation, endLocation, landmarkLocation));
                     }
 
                     @Override
                     protected void done() {
                         try {
-                            String result = get();
-                            new ResultWindow(start, end, landmark, MapUtils.getNearbyLandmarks(MapUtils.getLocationByName(start)), "Dijkstra's Algorithm", "O((V + E) log V)", MapUtils.calculateRoute(MapUtils.getLocationByName(start), MapUtils.getLocationByName(end), MapUtils.getLandmarkByName(landmark))).setVisible(true);
+                            RouteResult result = get();
+                            new ResultWindow(start, end, landmark, nearbyLandmarks, "Dijkstra's Algorithm", "O((V + E) log V)", result).setVisible(true);
                         } catch (Exception e) {
                             e.printStackTrace();
                         }
@@ -235,31 +231,4 @@ public class RouteFinder extends JFrame {
                         "11081933 - Agalisi Desmond",
                 "Developer Credits", JOptionPane.INFORMATION_MESSAGE);
     }
-
-    private String buildResultText(String start, String end, String landmark, List<Location> landmarks, String algorithmUsed, String timeComplexity, List<Location> route) {
-        StringBuilder result = new StringBuilder();
-        result.append("Optimal routes from ").append(start).append(" to ").append(end).append(":\n");
-        result.append("Algorithm used: ").append(algorithmUsed).append("\n");
-        result.append("Time Complexity: ").append(timeComplexity).append("\n");
-
-        if (route.isEmpty()) {
-            result.append("No routes found.\n");
-        } else {
-            result.append("Routes:\n");
-            for (int i = 0; i < route.size(); i++) {
-                result.append((i + 1)).append(". Route ").append((char) ('A' + i)).append(" (Passes through: ").append(landmark).append(")\n");
-            }
-        }
-
-        if (!landmarks.isEmpty()) {
-            result.append("\nNearby landmarks:\n");
-            for (Location loc : landmarks) {
-                result.append("- ").append(loc.getName()).append("\n");
-            }
-        } else {
-            result.append("\nNo nearby landmarks found.\n");
-        }
-
-        return result.toString();
-    }
 }
@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+/*
+    |--------------------------------------------------------------------------
+    | RouteResult Class
+    |--------------------------------------------------------------------------
+    |
+    | The RouteResult class is the outcome of a route calculation: the locations
+    | passed through, the total distance and the distance of every leg. Turn
+    | instructions, the text shown to users and the compact encoded form are
+    | only produced when they are first asked for; instructions and text are
+    | then kept.
+    |
+    | Constructor:
+    | - RouteResult(List<Location> route): Wraps a route returned by MapUtils and
+    |   measures its legs.
+    |
+    | Methods:
+    | - `getRoute()`, `getTotalDistance()`, `getLegDistance(int leg)`, `getLegCount()`:
+    |   The route and its distances in kilometers. Leg i goes from route[i] to
+    |   route[i + 1].
+    | - `getInstructions()`: Turn-by-turn directions, e.g. "Turn left towards
+    |   Great Hall (45 m)". Legs of zero length are skipped.
+    | - `toText()`: The directions as display text.
+    | - `encodePolyline()`: The route coordinates as a byte array. Coordinates are
+    |   rounded to 1e-5 degrees (about one metre), each one is stored as the
+    |   difference from the previous one, zig-zag encoded so small negative values
+    |   stay small, and written as a varint of 7 bits per byte. A campus leg
+    |   usually takes two or three bytes per coordinate.
+    | - `decodePolyline(byte[] encoded)`: Reverses encodePolyline, returning the
+    |   coordinates as {lat0, lon0, lat1, lon1, ...}.
+    |
+    */
+
+public class RouteResult {
+    private static final double POLYLINE_PRECISION = 1e5;
+
+    private final List<Location> route;
+    private final double[] legDistances;
+    private final double totalDistance;
+    private volatile List<String> instructions;
+    private volatile String text;
+
+    public RouteResult(List<Location> route) {
+        this.route = Collections.unmodifiableList(route);
+        this.legDistances = new double[Math.max(0, route.size() - 1)];
+        double total = 0;
+        for (int i = 0; i < legDistances.length; i++) {
+            legDistances[i] = MapUtils.calculateDistance(route.get(i), route.get(i + 1));
+            total += legDistances[i];
+        }
+        this.totalDistance = total;
+    }
+
+    public List<Location> getRoute() {
+        return route;
+    }
+
+    public boolean isEmpty() {
+        return route.isEmpty();
+    }
+
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    public int getLegCount() {
+        return legDistances.length;
+    }
+
+    public double getLegDistance(int leg) {
+        return legDistances[leg];
+    }
+
+    public List<String> getInstructions() {
+        List<String> result = instructions;
+        if (result == null) {
+            result = Collections.unmodifiableList(buildInstructions());
+            instructions = result;
+        }
+        return result;
+    }
+
+    public String toText() {
+        String result = text;
+        if (result == null) {
+            result = buildText();
+            text = result;
+        }
+        return result;
+    }
+
+    public byte[] encodePolyline() {
+        // Measure first so that the result is the only allocation
+        int length = varintLength(route.size());
+        long lat = 0;
+        long lon = 0;
+        for (Location location : route) {
+            long nextLat = Math.round(location.getLatitude() * POLYLINE_PRECISION);
+            long nextLon = Math.round(location.getLongitude() * POLYLINE_PRECISION);
+            length += varintLength(zigzag(nextLat - lat)) + varintLength(zigzag(nextLon - lon));
+            lat = nextLat;
+            lon = nextLon;
+        }
+
+        byte[] encoded = new byte[length];
+        int offset = writeVarint(encoded, 0, route.size());
+        lat = 0;
+        lon = 0;
+        for (Location location : route) {
+            long nextLat = Math.round(location.getLatitude() * POLYLINE_PRECISION);
+            long nextLon = Math.round(location.getLongitude() * POLYLINE_PRECISION);
+            offset = writeVarint(encoded, offset, zigzag(nextLat - lat));
+            offset = writeVarint(encoded, offset, zigzag(nextLon - lon));
+            lat = nextLat;
+            lon = nextLon;
+        }
+        return encoded;
+    }
+
+    public static double[] decodePolyline(byte[] encoded) {
+        int[] position = {0};
+        int count = (int) readVarint(encoded, position);
+        double[] coordinates = new double[count * 2];
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unzigzag(readVarint(encoded, position));
+            lon += unzigzag(readVarint(encoded, position));
+            coordinates[2 * i] = lat / POLYLINE_PRECISION;
+            coordinates[2 * i + 1] = lon / POLYLINE_PRECISION;
+        }
+        return coordinates;
+    }
+
+    private List<String> buildInstructions() {
+        List<String> result = new ArrayList<>();
+        double previousBearing = Double.NaN;
+        for (int i = 0; i < legDistances.length; i++) {
+            if (legDistances[i] == 0) {
+                continue;
+            }
+            Location from = route.get(i);
+            Location to = route.get(i + 1);
+            double bearing = bearing(from, to);
+            String action = Double.isNaN(previousBearing)
+                    ? "Head " + compassDirection(bearing)
+                    : turn(bearing - previousBearing);
+            result.add(action + " towards " + to.getName() + " (" + formatDistance(legDistances[i]) + ")");
+            previousBearing = bearing;
+        }
+        if (!route.isEmpty()) {
+            result.add("Arrive at " + route.get(route.size() - 1).getName());
+        }
+        return result;
+    }
+
+    private String buildText() {
+        if (route.isEmpty()) {
+            return "No routes found.\n";
+        }
+        StringBuilder result = new StringBuilder();
+        result.append("Total distance: ").append(formatDistance(totalDistance)).append("\n");
+        result.append("Directions:\n");
+        List<String> steps = getInstructions();
+        for (int i = 0; i < steps.size(); i++) {
+            result.append(i + 1).append(". ").append(steps.get(i)).append("\n");
+        }
+        return result.toString();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(byte[] buffer, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long readVarint(byte[] buffer, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position[0] >= buffer.length) {
+                throw new IllegalArgumentException("Truncated polyline");
+            }
+            b = buffer[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Degrees clockwise from north, using a flat-earth approximation that is
+    // accurate at campus scale
+    private static double bearing(Location from, Location to) {
+        double dLat = to.getLatitude() - from.getLatitude();
+        double dLon = (to.getLongitude() - from.getLongitude()) * Math.cos(Math.toRadians(from.getLatitude()));
+        double degrees = Math.toDegrees(Math.atan2(dLon, dLat));
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+
+    private static String compassDirection(double bearing) {
+        String[] directions = {"north", "north-east", "east", "south-east", "south", "south-west", "west", "north-west"};
+        return directions[(int) Math.round(bearing / 45) % 8];
+    }
+
+    private static String turn(double change) {
+        // Normalise to (-180, 180]: negative is a left turn, positive a right turn
+        double angle = ((change % 360) + 540) % 360 - 180;
+        double magnitude = Math.abs(angle);
+        String side = angle < 0 ? "left" : "right";
+        if (magnitude < 20) {
+            return "Continue straight";
+        } else if (magnitude < 60) {
+            return "Bear " + side;
+        } else if (magnitude < 150) {
+            return "Turn " + side;
+        }
+        return "Make a U-turn";
+    }
+
+    private static String formatDistance(double km) {
+        return km < 1
+                ? String.format(Locale.ROOT, "%d m", Math.round(km * 1000))
+                : String.format(Locale.ROOT, "%.2f km", km);
+    }
+}
@@ -0,0 +1,418 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+/*
+    |--------------------------------------------------------------------------
+    | ShardCoordinator Class
+    |--------------------------------------------------------------------------
+    |
+    | The ShardCoordinator class answers shortest-route queries across the
+    | RegionShard processes. It never sees a walkway inside a region: it only
+    | holds the overlay, i.e. every region's boundary nodes, their clique and the
+    | cut edges between regions, plus whatever the shards send back for a query.
+    |
+    | Usage:
+    |   java ShardCoordinator <from> <to> --spawn <basePort>
+    |   java ShardCoordinator <from> <to> <port> [<port> ...]
+    | With `--spawn` the coordinator starts one RegionShard per region on
+    | consecutive loopback ports (each with a SHARD_HEAP heap limit) and stops
+    | them on exit; otherwise it connects to shards already running.
+    |
+    | Query:
+    | 1. Ask every shard for the DISTANCES from the start and from the end; the
+    |    shard owning a node answers with its distances to that region's
+    |    boundary nodes. If both are in the same region, the PATH between them
+    |    inside the region is a candidate too.
+    | 2. Run Dijkstra's algorithm on the overlay: start -> boundary of its region
+    |    -> cliques and cut edges -> boundary of the end's region -> end.
+    | 3. Unpack every hop through a region into walkways with a PATH request to
+    |    that region's shard.
+    |
+    | Methods:
+    | - `route(Location start, Location end)`: Shortest route as a list of nodes.
+    | - `setWeight(Location u, Location v, double weight)`: Sends a weight change
+    |   to every shard and fetches the overlay again.
+    | - `close()`: Closes the connections and stops spawned shards.
+    |
+    */
+
+public class ShardCoordinator implements AutoCloseable {
+    private static final String SHARD_HEAP = "-Xmx64m";
+    private static final int CONNECT_ATTEMPTS = 100;
+    private static final long CONNECT_RETRY_MILLIS = 100;
+
+    private final List<ShardConnection> shards = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    // Overlay, indexed by location id: the shard a boundary node belongs to and its row in that shard's clique
+    private int[] shardOf;
+    private int[] rowOf;
+    private int[][] boundaryIds;
+    private double[][] cliques;
+
+    // Cut edges leaving each boundary node, as offsets into cutTargets / cutWeights
+    private int[] cutOffsets;
+    private int[] cutTargets;
+    private double[] cutWeights;
+
+    public static ShardCoordinator connect(int... ports) throws IOException {
+        ShardCoordinator coordinator = new ShardCoordinator();
+        try {
+            for (int port : ports) {
+                coordinator.shards.add(ShardConnection.open(port));
+            }
+            coordinator.refreshOverlay();
+        } catch (IOException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    public static ShardCoordinator spawn(int basePort) throws IOException {
+        ShardCoordinator coordinator = new ShardCoordinator();
+        try {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for (int region = 0; region < OverlayGraph.DEFAULT_REGIONS; region++) {
+                ProcessBuilder builder = new ProcessBuilder(java, SHARD_HEAP,
+                        "-cp", System.getProperty("java.class.path"),
+                        "RegionShard", Integer.toString(region), Integer.toString(basePort + region));
+                builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                coordinator.processes.add(builder.start());
+            }
+            for (int region = 0; region < OverlayGraph.DEFAULT_REGIONS; region++) {
+                coordinator.shards.add(ShardConnection.open(basePort + region));
+            }
+            coordinator.refreshOverlay();
+        } catch (IOException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || ("--spawn".equals(args[2]) && args.length != 4)) {
+            System.err.println("Usage: java ShardCoordinator <from> <to> (--spawn <basePort> | <port> [<port> ...])");
+            System.exit(2);
+            return;
+        }
+        Location from = MapUtils.getPlaceByName(args[0]);
+        Location to = MapUtils.getPlaceByName(args[1]);
+        if (from == null || to == null) {
+            System.err.println("Unknown location: " + (from == null ? args[0] : args[1]));
+            System.exit(1);
+            return;
+        }
+
+        ShardCoordinator coordinator;
+        if ("--spawn".equals(args[2])) {
+            coordinator = spawn(Integer.parseInt(args[3]));
+        } else {
+            int[] ports = new int[args.length - 2];
+            for (int i = 0; i < ports.length; i++) {
+                ports[i] = Integer.parseInt(args[i + 2]);
+            }
+            coordinator = connect(ports);
+        }
+        try (ShardCoordinator c = coordinator) {
+            System.out.print(new RouteResult(c.route(from, to)).toText());
+        }
+    }
+
+    public synchronized List<Location> route(Location start, Location end) throws IOException {
+        List<Location> route = new ArrayList<>();
+        if (start.equals(end)) {
+            route.add(start);
+            return route;
+        }
+        int s = start.getId();
+        int t = end.getId();
+        int sourceShard = -1;
+        int targetShard = -1;
+        double[] sourceDistances = null;
+        double[] targetDistances = null;
+        for (int i = 0; i < shards.size(); i++) {
+            double[] distances = shards.get(i).distances(s);
+            if (distances != null) {
+                sourceShard = i;
+                sourceDistances = distances;
+            }
+            distances = shards.get(i).distances(t);
+            if (distances != null) {
+                targetShard = i;
+                targetDistances = distances;
+            }
+        }
+        if (sourceShard < 0 || targetShard < 0) {
+            throw new IllegalArgumentException("No shard serves " + (sourceShard < 0 ? start : end).getName());
+        }
+
+        int n = LocationStore.size();
+        double[] distance = new double[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        int[] parent = new int[n];
+        // Shard whose PATH unpacks the hop into a node, or -1 for a cut edge
+        int[] parentShard = new int[n];
+        boolean[] settled = new boolean[n];
+        CampusGraph.NodeHeap heap = new CampusGraph.NodeHeap(64);
+
+        distance[s] = 0;
+        parent[s] = -1;
+        heap.push(s, 0);
+        if (sourceShard == targetShard) {
+            double direct = shards.get(sourceShard).pathDistance(s, t);
+            relax(distance, parent, parentShard, heap, s, t, direct, sourceShard);
+        }
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            if (u == t) {
+                break;
+            }
+            if (settled[u]) {
+                continue;
+            }
+            settled[u] = true;
+
+            if (u == s) {
+                int[] ids = boundaryIds[sourceShard];
+                for (int j = 0; j < ids.length; j++) {
+                    relax(distance, parent, parentShard, heap, u, ids[j], sourceDistances[j], sourceShard);
+                }
+            }
+            int shard = shardOf[u];
+            if (shard < 0) {
+                continue;
+            }
+            int[] ids = boundaryIds[shard];
+            double[] clique = cliques[shard];
+            int row = rowOf[u] * ids.length;
+            for (int j = 0; j < ids.length; j++) {
+                relax(distance, parent, parentShard, heap, u, ids[j], distance[u] + clique[row + j], shard);
+            }
+            for (int e = cutOffsets[u]; e < cutOffsets[u + 1]; e++) {
+                relax(distance, parent, parentShard, heap, u, cutTargets[e], distance[u] + cutWeights[e], -1);
+            }
+            if (shard == targetShard) {
+                relax(distance, parent, parentShard, heap, u, t, distance[u] + targetDistances[rowOf[u]], shard);
+            }
+        }
+
+        if (distance[t] == Double.POSITIVE_INFINITY) {
+            return route;
+        }
+        List<Integer> hops = new ArrayList<>();
+        for (int v = t; v != -1; v = parent[v]) {
+            hops.add(v);
+        }
+        Collections.reverse(hops);
+        route.add(start);
+        for (int i = 1; i < hops.size(); i++) {
+            int v = hops.get(i);
+            if (parentShard[v] < 0) {
+                route.add(Location.of(v));
+            } else {
+                List<Location> inside = shards.get(parentShard[v]).path(hops.get(i - 1), v);
+                route.addAll(inside.subList(1, inside.size()));
+            }
+        }
+        return route;
+    }
+
+    private static void relax(double[] distance, int[] parent, int[] parentShard, CampusGraph.NodeHeap heap,
+                              int from, int node, double candidate, int shard) {
+        if (candidate < distance[node]) {
+            distance[node] = candidate;
+            parent[node] = from;
+            parentShard[node] = shard;
+            heap.push(node, candidate);
+        }
+    }
+
+    public synchronized void setWeight(Location u, Location v, double weight) throws IOException {
+        if (!(weight >= MapUtils.calculateDistance(u, v))) {
+            throw new IllegalArgumentException("Weight " + weight + " between " + u.getName() + " and "
+                    + v.getName() + " is shorter than the straight-line distance");
+        }
+        boolean found = false;
+        for (ShardConnection shard : shards) {
+            found |= shard.setWeight(u.getId(), v.getId(), weight);
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No walkway between " + u.getName() + " and " + v.getName());
+        }
+        refreshOverlay();
+    }
+
+    private void refreshOverlay() throws IOException {
+        int n = LocationStore.size();
+        int[] nextShardOf = new int[n];
+        int[] nextRowOf = new int[n];
+        Arrays.fill(nextShardOf, -1);
+        int[][] nextBoundaryIds = new int[shards.size()][];
+        double[][] nextCliques = new double[shards.size()][];
+        List<int[]> cutEnds = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+
+        for (int i = 0; i < shards.size(); i++) {
+            DataInputStream in = shards.get(i).request(RegionShard.OVERLAY);
+            in.readInt();
+            int k = in.readInt();
+            nextBoundaryIds[i] = new int[k];
+            for (int j = 0; j < k; j++) {
+                int id = in.readInt();
+                nextBoundaryIds[i][j] = id;
+                nextShardOf[id] = i;
+                nextRowOf[id] = j;
+            }
+            nextCliques[i] = new double[k * k];
+            for (int j = 0; j < k * k; j++) {
+                nextCliques[i][j] = in.readDouble();
+            }
+            int cuts = in.readInt();
+            for (int j = 0; j < cuts; j++) {
+                cutEnds.add(new int[]{in.readInt(), in.readInt()});
+                weights.add(in.readDouble());
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int[] ends : cutEnds) {
+            offsets[ends[0] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[cutEnds.size()];
+        double[] cutWeightArray = new double[cutEnds.size()];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < cutEnds.size(); i++) {
+            int e = next[cutEnds.get(i)[0]]++;
+            targets[e] = cutEnds.get(i)[1];
+            cutWeightArray[e] = weights.get(i);
+        }
+
+        shardOf = nextShardOf;
+        rowOf = nextRowOf;
+        boundaryIds = nextBoundaryIds;
+        cliques = nextCliques;
+        cutOffsets = offsets;
+        cutTargets = targets;
+        cutWeights = cutWeightArray;
+    }
+
+    @Override
+    public void close() {
+        for (ShardConnection shard : shards) {
+            shard.close();
+        }
+        for (Process process : processes) {
+            process.destroy();
+        }
+    }
+
+    // One connection to a shard; requests on it are answered in order
+    private static class ShardConnection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private ShardConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        // Retries while a freshly spawned shard is still starting up
+        static ShardConnection open(int port) throws IOException {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return new ShardConnection(new Socket(InetAddress.getLoopbackAddress(), port));
+                } catch (ConnectException e) {
+                    if (attempt == CONNECT_ATTEMPTS) {
+                        throw e;
+                    }
+                    try {
+                        Thread.sleep(CONNECT_RETRY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        DataInputStream request(int op, int... arguments) throws IOException {
+            out.writeByte(op);
+            for (int argument : arguments) {
+                out.writeInt(argument);
+            }
+            out.flush();
+            return in;
+        }
+
+        // Null when the node is in another region
+        double[] distances(int id) throws IOException {
+            DataInputStream response = request(RegionShard.DISTANCES, id);
+            int k = response.readInt();
+            if (k < 0) {
+                return null;
+            }
+            double[] distances = new double[k];
+            for (int j = 0; j < k; j++) {
+                distances[j] = response.readDouble();
+            }
+            return distances;
+        }
+
+        double pathDistance(int from, int to) throws IOException {
+            DataInputStream response = request(RegionShard.PATH, from, to);
+            double distance = response.readDouble();
+            int count = response.readInt();
+            // Only the distance is needed, but the node ids must be consumed
+            for (int i = 0; i < count; i++) {
+                response.readInt();
+            }
+            return distance;
+        }
+
+        List<Location> path(int from, int to) throws IOException {
+            DataInputStream response = request(RegionShard.PATH, from, to);
+            response.readDouble();
+            int count = response.readInt();
+            List<Location> path = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                path.add(Location.of(response.readInt()));
+            }
+            return path;
+        }
+
+        boolean setWeight(int u, int v, double weight) throws IOException {
+            out.writeByte(RegionShard.SET_WEIGHT);
+            out.writeInt(u);
+            out.writeInt(v);
+            out.writeDouble(weight);
+            out.flush();
+            return in.readBoolean();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+}
@@ -0,0 +1,609 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/*
+    |--------------------------------------------------------------------------
+    | ShuttleRouter Class
+    |--------------------------------------------------------------------------
+    |
+    | The ShuttleRouter class answers earliest-arrival questions for journeys that
+    | combine walking with the campus shuttle: "leaving from A at 08:15, when can
+    | I be at B at the earliest, and how?". It uses RAPTOR (Round-bAsed Public
+    | Transit Optimized Router), which needs no preprocessing beyond loading the
+    | timetable.
+    |
+    | Timetable:
+    | - Loaded from a text file (default `resources/timetable/shuttle.txt`), whose
+    |   format is described at the top of that file.
+    | - Trips calling at the same stops in the same order are grouped into a
+    |   route, with their trips sorted by departure time. A trip that would
+    |   overtake another at some stop is put in a route of its own, because
+    |   boarding assumes the trips of a route keep their order at every stop.
+    | - Routes, stops and stop times are kept in flat int arrays indexed by route,
+    |   trip and stop number, so a query scans arrays rather than objects.
+    |
+    | Walking:
+    | - Walking times come from the CampusGraph at WALKING_SPEED_KMH: from the start
+    |   to every stop, from every stop to the destination, and between stops for
+    |   transfers. They are all computed once, when the timetable is loaded.
+    | - The walk-only time from start to destination is found per query, with an
+    |   A* search that stops as soon as it reaches the destination.
+    |
+    | Algorithm:
+    | - Round k finds the earliest arrival at every stop using at most k shuttle
+    |   trips. Each round scans only the routes serving a stop that improved in the
+    |   previous round, boards the earliest trip that can still be caught, and
+    |   then relaxes walking transfers from the stops the shuttle improved.
+    | - Labels that cannot beat the best known arrival at the destination are
+    |   pruned, and the search stops when a round improves nothing.
+    |
+    | Methods:
+    | - `load(Path timetable, CampusGraph graph)`: Reads a timetable.
+    | - `earliestArrival(Location from, Location to, int departureSeconds)`:
+    |   Returns the fastest Journey departing at the given second of the day,
+    |   which may be walking only.
+    | - `main(String[] args)`: `java ShuttleRouter <from> <to> <HH:MM>` prints a
+    |   journey using the default timetable.
+    |
+    */
+
+public class ShuttleRouter {
+    public static final String DEFAULT_TIMETABLE = "resources/timetable/shuttle.txt";
+    private static final double WALKING_SPEED_KMH = 5.0;
+    private static final int MAX_ROUNDS = 5;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final CampusGraph graph;
+    private final String[] tripNames;
+
+    // Stops, as nodes of the campus graph
+    private final int[] stopNodes;
+    private final int[] stopRoutesOffset;
+    private final int[] stopRoutes;
+    private final int[] stopRoutePositions;
+
+    // Routes: the stops of route r are routeStops[routeStopsOffset[r] ..], and the
+    // time of trip t at position p is stopTimes[routeTimesOffset[r] + t * length + p]
+    private final int[] routeStopsOffset;
+    private final int[] routeStops;
+    private final int[] routeTripCount;
+    private final int[] routeTripsOffset;
+    private final int[] routeTimesOffset;
+    private final int[] stopTimes;
+
+    // Walking transfers between stops
+    private final int[] transferOffset;
+    private final int[] transferTargets;
+    private final int[] transferSeconds;
+
+    // Walking time from every graph node to every stop: walkSeconds[node * stops + stop]
+    private final int[] walkSeconds;
+
+    private ShuttleRouter(CampusGraph graph, List<Location> stops, List<Trip> trips) {
+        this.graph = graph;
+        int stopCount = stops.size();
+        stopNodes = new int[stopCount];
+        for (int s = 0; s < stopCount; s++) {
+            stopNodes[s] = graph.indexOf(stops.get(s));
+        }
+
+        // Group trips into routes by their stop sequence. Boarding binary-searches
+        // the trips of a route, which only works if no trip overtakes another, so
+        // a trip that would overtake the last trip of every existing route with
+        // its stop sequence starts a new one.
+        List<Trip> byDeparture = new ArrayList<>(trips);
+        byDeparture.sort((a, b) -> Integer.compare(a.times[0], b.times[0]));
+        Map<String, List<List<Trip>>> sequences = new LinkedHashMap<>();
+        for (Trip trip : byDeparture) {
+            List<List<Trip>> candidates = sequences.computeIfAbsent(Arrays.toString(trip.stops), key -> new ArrayList<>());
+            List<Trip> target = null;
+            for (List<Trip> candidate : candidates) {
+                if (!trip.overtakes(candidate.get(candidate.size() - 1))) {
+                    target = candidate;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new ArrayList<>();
+                candidates.add(target);
+            }
+            target.add(trip);
+        }
+        List<List<Trip>> routes = new ArrayList<>();
+        for (List<List<Trip>> candidates : sequences.values()) {
+            routes.addAll(candidates);
+        }
+        int routeCount = routes.size();
+        routeStopsOffset = new int[routeCount + 1];
+        routeTripCount = new int[routeCount];
+        routeTripsOffset = new int[routeCount + 1];
+        routeTimesOffset = new int[routeCount + 1];
+        int r = 0;
+        for (List<Trip> routeTrips : routes) {
+            int length = routeTrips.get(0).stops.length;
+            routeStopsOffset[r + 1] = routeStopsOffset[r] + length;
+            routeTripCount[r] = routeTrips.size();
+            routeTripsOffset[r + 1] = routeTripsOffset[r] + routeTrips.size();
+            routeTimesOffset[r + 1] = routeTimesOffset[r] + length * routeTrips.size();
+            r++;
+        }
+        routeStops = new int[routeStopsOffset[routeCount]];
+        stopTimes = new int[routeTimesOffset[routeCount]];
+        tripNames = new String[routeTripsOffset[routeCount]];
+        r = 0;
+        for (List<Trip> routeTrips : routes) {
+            int length = routeTrips.get(0).stops.length;
+            System.arraycopy(routeTrips.get(0).stops, 0, routeStops, routeStopsOffset[r], length);
+            for (int t = 0; t < routeTrips.size(); t++) {
+                System.arraycopy(routeTrips.get(t).times, 0, stopTimes, routeTimesOffset[r] + t * length, length);
+                tripNames[routeTripsOffset[r] + t] = routeTrips.get(t).name;
+            }
+            r++;
+        }
+
+        // Routes serving each stop, with the stop's position on the route
+        stopRoutesOffset = new int[stopCount + 1];
+        for (int i = 0; i < routeStops.length; i++) {
+            stopRoutesOffset[routeStops[i] + 1]++;
+        }
+        for (int s = 0; s < stopCount; s++) {
+            stopRoutesOffset[s + 1] += stopRoutesOffset[s];
+        }
+        stopRoutes = new int[routeStops.length];
+        stopRoutePositions = new int[routeStops.length];
+        int[] next = Arrays.copyOf(stopRoutesOffset, stopCount);
+        for (r = 0; r < routeCount; r++) {
+            for (int p = 0; p < routeStopsOffset[r + 1] - routeStopsOffset[r]; p++) {
+                int s = routeStops[routeStopsOffset[r] + p];
+                stopRoutes[next[s]] = r;
+                stopRoutePositions[next[s]++] = p;
+            }
+        }
+
+        // Walking times, from one Dijkstra per stop over the pedestrian graph
+        int nodeCount = graph.size();
+        walkSeconds = new int[nodeCount * stopCount];
+        for (int s = 0; s < stopCount; s++) {
+            double[] distances = graph.shortestDistances(stopNodes[s]);
+            for (int v = 0; v < nodeCount; v++) {
+                walkSeconds[v * stopCount + s] = toWalkingSeconds(distances[v]);
+            }
+        }
+        transferOffset = new int[stopCount + 1];
+        List<int[]> transfers = new ArrayList<>();
+        for (int s = 0; s < stopCount; s++) {
+            for (int s2 = 0; s2 < stopCount; s2++) {
+                int seconds = walkSeconds[stopNodes[s2] * stopCount + s];
+                if (s != s2 && seconds != UNREACHED) {
+                    transfers.add(new int[]{s2, seconds});
+                }
+            }
+            transferOffset[s + 1] = transfers.size();
+        }
+        transferTargets = new int[transfers.size()];
+        transferSeconds = new int[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            transferTargets[i] = transfers.get(i)[0];
+            transferSeconds[i] = transfers.get(i)[1];
+        }
+    }
+
+    public static ShuttleRouter load(Path timetable, CampusGraph graph) throws IOException {
+        List<Location> stops = new ArrayList<>();
+        Map<Location, Integer> stopIds = new HashMap<>();
+        List<Trip> trips = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(timetable, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\|");
+                try {
+                    if (fields[0].equals("trip") && fields.length >= 4) {
+                        int[] tripStops = new int[fields.length - 2];
+                        int[] times = new int[fields.length - 2];
+                        for (int i = 2; i < fields.length; i++) {
+                            int at = fields[i].lastIndexOf('@');
+                            tripStops[i - 2] = stopId(fields[i].substring(0, at), stops, stopIds);
+                            times[i - 2] = parseTime(fields[i].substring(at + 1));
+                        }
+                        trips.add(new Trip(fields[1], tripStops, times));
+                    } else if (fields[0].equals("frequency") && fields.length >= 7) {
+                        int first = parseTime(fields[2]);
+                        int last = parseTime(fields[3]);
+                        int headway = Integer.parseInt(fields[4].trim()) * 60;
+                        if (headway <= 0 || last < first) {
+                            throw new IllegalArgumentException("headway must be positive and last departure not before first");
+                        }
+                        int[] tripStops = new int[fields.length - 5];
+                        int[] offsets = new int[fields.length - 5];
+                        for (int i = 5; i < fields.length; i++) {
+                            int plus = fields[i].lastIndexOf('+');
+                            tripStops[i - 5] = stopId(fields[i].substring(0, plus), stops, stopIds);
+                            offsets[i - 5] = Integer.parseInt(fields[i].substring(plus + 1).trim()) * 60;
+                        }
+                        for (int departure = first; departure <= last; departure += headway) {
+                            int[] times = new int[offsets.length];
+                            for (int i = 0; i < offsets.length; i++) {
+                                times[i] = departure + offsets[i];
+                            }
+                            trips.add(new Trip(fields[1] + " " + formatTime(departure), tripStops, times));
+                        }
+                    } else {
+                        throw new IllegalArgumentException("unknown line type");
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException("Malformed timetable line " + timetable + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new ShuttleRouter(graph, stops, trips);
+    }
+
+    private static int stopId(String name, List<Location> stops, Map<Location, Integer> stopIds) {
+        Location location = MapUtils.getPlaceByName(name.trim());
+        if (location == null) {
+            throw new IllegalArgumentException("unknown stop " + name.trim());
+        }
+        Integer id = stopIds.get(location);
+        if (id == null) {
+            id = stops.size();
+            stops.add(location);
+            stopIds.put(location, id);
+        }
+        return id;
+    }
+
+    public Journey earliestArrival(Location from, Location to, int departureSeconds) {
+        int origin = graph.indexOf(from);
+        int destination = graph.indexOf(to);
+        int stopCount = stopNodes.length;
+
+        int[][] arrival = new int[MAX_ROUNDS + 1][];
+        int[][] rideArrival = new int[MAX_ROUNDS + 1][];
+        int[][] rideTrip = new int[MAX_ROUNDS + 1][];
+        int[][] rideBoardStop = new int[MAX_ROUNDS + 1][];
+        int[][] rideDeparture = new int[MAX_ROUNDS + 1][];
+        int[][] walkArrival = new int[MAX_ROUNDS + 1][];
+        int[][] walkFrom = new int[MAX_ROUNDS + 1][];
+        int[] best = new int[stopCount];
+        Arrays.fill(best, UNREACHED);
+        boolean[] marked = new boolean[stopCount];
+        int[] routeFrom = new int[routeTripCount.length];
+
+        // Walking all the way is the journey to beat. A* stops at the destination;
+        // straight-line distance is a valid bound because walkways are never shorter
+        double directKm = graph.shortestDistance(origin, destination,
+                (v, target) -> MapUtils.calculateDistance(graph.getNode(v).getId(), graph.getNode(target).getId()));
+        int bestTarget = toWalkingSeconds(directKm) == UNREACHED ? UNREACHED : departureSeconds + toWalkingSeconds(directKm);
+        int bestRound = -1;
+        int bestStop = -1;
+
+        // Round 0: walk from the origin to every stop
+        arrival[0] = new int[stopCount];
+        for (int s = 0; s < stopCount; s++) {
+            int walk = walkSeconds[origin * stopCount + s];
+            arrival[0][s] = walk == UNREACHED ? UNREACHED : departureSeconds + walk;
+            best[s] = arrival[0][s];
+            marked[s] = arrival[0][s] < bestTarget;
+        }
+
+        for (int k = 1; k <= MAX_ROUNDS; k++) {
+            int[] previous = arrival[k - 1];
+            int[] current = Arrays.copyOf(previous, stopCount);
+            arrival[k] = current;
+            rideArrival[k] = new int[stopCount];
+            rideTrip[k] = new int[stopCount];
+            rideBoardStop[k] = new int[stopCount];
+            rideDeparture[k] = new int[stopCount];
+            walkArrival[k] = new int[stopCount];
+            walkFrom[k] = new int[stopCount];
+            Arrays.fill(rideArrival[k], UNREACHED);
+            Arrays.fill(walkArrival[k], UNREACHED);
+
+            // Collect the routes to scan, each from its earliest marked stop
+            Arrays.fill(routeFrom, Integer.MAX_VALUE);
+            boolean anyMarked = false;
+            for (int s = 0; s < stopCount; s++) {
+                if (!marked[s]) {
+                    continue;
+                }
+                anyMarked = true;
+                marked[s] = false;
+                for (int i = stopRoutesOffset[s]; i < stopRoutesOffset[s + 1]; i++) {
+                    routeFrom[stopRoutes[i]] = Math.min(routeFrom[stopRoutes[i]], stopRoutePositions[i]);
+                }
+            }
+            if (!anyMarked) {
+                break;
+            }
+
+            // Scan the routes
+            for (int r = 0; r < routeFrom.length; r++) {
+                if (routeFrom[r] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                int length = routeStopsOffset[r + 1] - routeStopsOffset[r];
+                int times = routeTimesOffset[r];
+                int trip = -1;
+                int boardStop = -1;
+                int boardTime = -1;
+                for (int p = routeFrom[r]; p < length; p++) {
+                    int s = routeStops[routeStopsOffset[r] + p];
+                    if (trip >= 0) {
+                        int time = stopTimes[times + trip * length + p];
+                        if (time < best[s] && time < bestTarget) {
+                            current[s] = time;
+                            best[s] = time;
+                            rideArrival[k][s] = time;
+                            rideTrip[k][s] = routeTripsOffset[r] + trip;
+                            rideBoardStop[k][s] = boardStop;
+                            rideDeparture[k][s] = boardTime;
+                            marked[s] = true;
+                        }
+                    }
+                    if (previous[s] != UNREACHED && (trip < 0 || previous[s] <= stopTimes[times + trip * length + p])) {
+                        int earliest = earliestTrip(r, p, previous[s]);
+                        if (earliest >= 0 && (trip < 0 || earliest < trip)) {
+                            trip = earliest;
+                            boardStop = s;
+                            boardTime = stopTimes[times + trip * length + p];
+                        }
+                    }
+                }
+            }
+
+            // Walking transfers from the stops the shuttle improved
+            for (int s = 0; s < stopCount; s++) {
+                if (rideArrival[k][s] == UNREACHED) {
+                    continue;
+                }
+                for (int i = transferOffset[s]; i < transferOffset[s + 1]; i++) {
+                    int s2 = transferTargets[i];
+                    int time = rideArrival[k][s] + transferSeconds[i];
+                    if (time < best[s2] && time < bestTarget) {
+                        current[s2] = time;
+                        best[s2] = time;
+                        walkArrival[k][s2] = time;
+                        walkFrom[k][s2] = s;
+                        marked[s2] = true;
+                    }
+                }
+            }
+
+            // Walk on to the destination
+            for (int s = 0; s < stopCount; s++) {
+                if (!marked[s]) {
+                    continue;
+                }
+                int walk = walkSeconds[destination * stopCount + s];
+                if (walk != UNREACHED && current[s] + walk < bestTarget) {
+                    bestTarget = current[s] + walk;
+                    bestRound = k;
+                    bestStop = s;
+                }
+            }
+        }
+
+        return reconstruct(from, to, departureSeconds, bestTarget, bestRound, bestStop, origin, destination,
+                arrival, rideArrival, rideTrip, rideBoardStop, rideDeparture, walkArrival, walkFrom);
+    }
+
+    private Journey reconstruct(Location from, Location to, int departureSeconds, int bestTarget, int round, int stop,
+                                int origin, int destination, int[][] arrival, int[][] rideArrival, int[][] rideTrip,
+                                int[][] rideBoardStop, int[][] rideDeparture, int[][] walkArrival, int[][] walkFrom) {
+        List<Leg> legs = new ArrayList<>();
+        if (bestTarget == UNREACHED) {
+            return new Journey(departureSeconds, UNREACHED, legs);
+        }
+        if (round < 0) {
+            legs.add(new Leg(null, from, to, departureSeconds, bestTarget));
+            return new Journey(departureSeconds, bestTarget, legs);
+        }
+
+        int stopCount = stopNodes.length;
+        int time = arrival[round][stop];
+        legs.add(new Leg(null, stopLocation(stop), to, time, bestTarget));
+        int k = round;
+        int s = stop;
+        while (k > 0) {
+            if (walkArrival[k][s] != UNREACHED && walkArrival[k][s] == arrival[k][s]) {
+                int fromStop = walkFrom[k][s];
+                legs.add(new Leg(null, stopLocation(fromStop), stopLocation(s), rideArrival[k][fromStop], walkArrival[k][s]));
+                s = fromStop;
+            } else if (rideArrival[k][s] == UNREACHED || rideArrival[k][s] != arrival[k][s]) {
+                k--;
+                continue;
+            }
+            int trip = rideTrip[k][s];
+            int boardStop = rideBoardStop[k][s];
+            legs.add(new Leg(tripNames[trip], stopLocation(boardStop), stopLocation(s),
+                    rideDeparture[k][s], rideArrival[k][s]));
+            s = boardStop;
+            k--;
+        }
+        legs.add(new Leg(null, from, stopLocation(s), departureSeconds,
+                departureSeconds + walkSeconds[origin * stopCount + s]));
+
+        Collections.reverse(legs);
+        legs.removeIf(leg -> leg.getTripName() == null && leg.getFrom().equals(leg.getTo()));
+        return new Journey(departureSeconds, bestTarget, legs);
+    }
+
+    // Earliest trip of route r leaving position p no earlier than the given time, or -1
+    private int earliestTrip(int r, int p, int time) {
+        int length = routeStopsOffset[r + 1] - routeStopsOffset[r];
+        int base = routeTimesOffset[r] + p;
+        int low = 0;
+        int high = routeTripCount[r];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (stopTimes[base + mid * length] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < routeTripCount[r] ? low : -1;
+    }
+
+    private Location stopLocation(int stop) {
+        return graph.getNode(stopNodes[stop]);
+    }
+
+    private static int toWalkingSeconds(double km) {
+        if (km == Double.POSITIVE_INFINITY) {
+            return UNREACHED;
+        }
+        return (int) Math.ceil(km / WALKING_SPEED_KMH * 3600);
+    }
+
+    static int parseTime(String text) {
+        String[] parts = text.trim().split(":");
+        int seconds = Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60;
+        return parts.length > 2 ? seconds + Integer.parseInt(parts[2]) : seconds;
+    }
+
+    static String formatTime(int seconds) {
+        return String.format("%02d:%02d", seconds / 3600, (seconds / 60) % 60);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: java ShuttleRouter <from> <to> <HH:MM>");
+            System.exit(2);
+            return;
+        }
+        Location from = MapUtils.getPlaceByName(args[0]);
+        Location to = MapUtils.getPlaceByName(args[1]);
+        if (from == null || to == null) {
+            System.err.println("Unknown location: " + (from == null ? args[0] : args[1]));
+            System.exit(1);
+            return;
+        }
+        ShuttleRouter router = load(Paths.get(DEFAULT_TIMETABLE), MapUtils.getCampusGraph());
+        System.out.print(router.earliestArrival(from, to, parseTime(args[2])));
+    }
+
+    private static class Trip {
+        private final String name;
+        private final int[] stops;
+        private final int[] times;
+
+        Trip(String name, int[] stops, int[] times) {
+            for (int i = 1; i < times.length; i++) {
+                if (times[i] < times[i - 1]) {
+                    throw new IllegalArgumentException("trip " + name + " goes back in time");
+                }
+            }
+            this.name = name;
+            this.stops = stops;
+            this.times = times;
+        }
+
+        // True if this trip, departing no earlier than the other one, is ahead of it at some stop
+        boolean overtakes(Trip other) {
+            for (int i = 0; i < times.length; i++) {
+                if (times[i] < other.times[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static class Leg {
+        private final String tripName;
+        private final Location from;
+        private final Location to;
+        private final int departure;
+        private final int arrival;
+
+        Leg(String tripName, Location from, Location to, int departure, int arrival) {
+            this.tripName = tripName;
+            this.from = from;
+            this.to = to;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        // Null for walking legs
+        public String getTripName() {
+            return tripName;
+        }
+
+        public Location getFrom() {
+            return from;
+        }
+
+        public Location getTo() {
+            return to;
+        }
+
+        public int getDeparture() {
+            return departure;
+        }
+
+        public int getArrival() {
+            return arrival;
+        }
+    }
+
+    public static class Journey {
+        private final int departure;
+        private final int arrival;
+        private final List<Leg> legs;
+
+        Journey(int departure, int arrival, List<Leg> legs) {
+            this.departure = departure;
+            this.arrival = arrival;
+            this.legs = legs;
+        }
+
+        public boolean isReachable() {
+            return arrival != UNREACHED;
+        }
+
+        public int getDeparture() {
+            return departure;
+        }
+
+        public int getArrival() {
+            return arrival;
+        }
+
+        public List<Leg> getLegs() {
+            return legs;
+        }
+
+        @Override
+        public String toString() {
+            if (!isReachable()) {
+                return "No journey found.\n";
+            }
+            StringBuilder result = new StringBuilder();
+            result.append("Depart ").append(formatTime(departure)).append(", arrive ").append(formatTime(arrival)).append(":\n");
+            for (Leg leg : legs) {
+                result.append(formatTime(leg.departure)).append('-').append(formatTime(leg.arrival)).append(' ');
+                result.append(leg.tripName == null ? "Walk" : "Shuttle " + leg.tripName);
+                result.append(" from ").append(leg.from.getName()).append(" to ").append(leg.to.getName()).append('\n');
+            }
+            return result.toString();
+        }
+    }
+}
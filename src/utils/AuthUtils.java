@@ -1,46 +1,283 @@
 package utils;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 /*
     |--------------------------------------------------------------------------
     | AuthUtils Class
     |--------------------------------------------------------------------------
     |
     | The AuthUtils class provides utility methods for authenticating users within
-    | the UG Navigate application. It contains a static map of student IDs and passwords
-    | for authentication purposes. The class includes a method to verify if provided
-    | credentials match the stored data.
+    | the UG Navigate application. Passwords are never stored in plaintext: each
+    | student has a random salt and a PBKDF2 (HMAC-SHA256) hash of their password.
+    | Successful logins receive a session token that can be re-validated cheaply.
     |
-    | Static Block:
-    | - Initializes the `studentAuth` map with mock student ID and password pairs for
-    |   testing purposes.
+    | Credential Store:
+    | - Loaded on first use from the file named by the system property
+    |   `ugnavigate.credentials` (default `resources/credentials.txt`).
+    | - If no file exists, falls back to the mock students used during development.
+    |
+    | Credential File Format:
+    | - One student per line: `studentId:iterations:salt:hash`, with the salt and
+    |   hash Base64-encoded. Blank lines and lines starting with `#` are ignored.
+    | - Lines can be generated with `java utils.AuthUtils <studentId> <password>`.
     |
     | Methods:
     | - `authenticate(String studentId, String password)`:
-    |   Checks if the provided student ID and password match the stored credentials.
-    |   Returns true if the credentials are valid; otherwise, returns false.
+    |   Checks the credentials on the calling thread. Returns true if they are valid.
+    | - `authenticateAsync(String studentId, char[] password)`:
+    |   Checks the credentials on the verification executor and completes with a
+    |   new session token, or null if the credentials are invalid. The password
+    |   array is cleared once it has been hashed. Completes exceptionally with a
+    |   RejectedExecutionException if too many logins are already queued.
+    | - `validateSession(String token)`:
+    |   Returns the student ID of a live session, or null if the token is unknown
+    |   or expired.
+    | - `invalidateSession(String token)`:
+    |   Ends a session.
+    | - `createCredentialLine(String studentId, char[] password)`:
+    |   Salts and hashes a password and returns the matching credential file line.
     |
     | Fields:
-    | - `studentAuth`: A map that stores student IDs as keys and corresponding passwords
-    |   as values. Used for authentication checks.
-    |
-    | Features:
-    | - Uses a static map to store authentication data for mock purposes.
-    | - Provides a simple authentication mechanism by comparing the provided credentials
-    |   with the stored data.
+    | - `studentAuth`: A map from student ID to salted hash. It is filled once while
+    |   the class is initialised and only read afterwards, so lookups take no lock.
+    | - `sessions`: A concurrent map from session token to session, so concurrent
+    |   logins and session checks do not serialize on a single lock.
+    | - `verifier`: A bounded thread pool that runs the deliberately slow password
+    |   hashing away from the Event Dispatch Thread.
     |
     */
 
 public class AuthUtils {
-    private static final Map<String, String> studentAuth = new HashMap<>();
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int DEFAULT_ITERATIONS = 210_000;
+    private static final int MOCK_ITERATIONS = 10_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int TOKEN_BYTES = 32;
+    private static final long SESSION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int SWEEP_INTERVAL = 1024;
+    private static final int MAX_QUEUED_LOGINS = 256;
 
-    static {
-        studentAuth.put("1", "1"); // Mock data
-        studentAuth.put("student456", "password456"); // Mock data
-    }
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private static final AtomicInteger issuedSinceSweep = new AtomicInteger();
+    private static final ThreadPoolExecutor verifier = createVerifier();
 
     public static boolean authenticate(String studentId, String password) {
-        return studentAuth.getOrDefault(studentId, "").equals(password);
+        return verify(studentId, password.toCharArray());
+    }
+
+    public static CompletableFuture<String> authenticateAsync(String studentId, char[] password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(studentId, password) ? issueSession(studentId) : null, verifier);
+        } catch (RejectedExecutionException e) {
+            Arrays.fill(password, '\0');
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public static String validateSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        if (session.expiresAt < System.currentTimeMillis()) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session.studentId;
+    }
+
+    public static void invalidateSession(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public static String createCredentialLine(String studentId, char[] password) {
+        Credential credential = Credential.create(password, DEFAULT_ITERATIONS);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return studentId + ":" + credential.iterations + ":" + encoder.encodeToString(credential.salt) + ":" + encoder.encodeToString(credential.hash);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java utils.AuthUtils <studentId> <password>");
+            System.exit(2);
+            return;
+        }
+        System.out.println(createCredentialLine(args[0], args[1].toCharArray()));
+    }
+
+    private static boolean verify(String studentId, char[] password) {
+        try {
+            Credential credential = studentId == null ? null : CredentialStore.studentAuth.get(studentId);
+            if (credential == null) {
+                CredentialStore.dummyCredential.matches(password);
+                return false;
+            }
+            return credential.matches(password);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private static String issueSession(String studentId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(studentId, System.currentTimeMillis() + SESSION_TTL_MILLIS));
+
+        // Expired sessions are otherwise only dropped when they are looked up
+        if (issuedSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            issuedSinceSweep.set(0);
+            long now = System.currentTimeMillis();
+            sessions.values().removeIf(session -> session.expiresAt < now);
+        }
+        return token;
+    }
+
+    private static ThreadPoolExecutor createVerifier() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_LOGINS), runnable -> {
+                    Thread thread = new Thread(runnable, "auth-verifier-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Loaded on first use, which is on a verifier thread when logging in from the UI
+    private static class CredentialStore {
+        private static final Map<String, Credential> studentAuth = new HashMap<>();
+        private static final Credential dummyCredential;
+
+        static {
+            Path path = Paths.get(System.getProperty("ugnavigate.credentials", "resources/credentials.txt"));
+            if (Files.isRegularFile(path)) {
+                try {
+                    loadCredentials(path);
+                } catch (IOException e) {
+                    throw new ExceptionInInitializerError(e);
+                }
+            } else {
+                studentAuth.put("1", Credential.create("1".toCharArray(), MOCK_ITERATIONS)); // Mock data
+                studentAuth.put("student456", Credential.create("password456".toCharArray(), MOCK_ITERATIONS)); // Mock data
+            }
+            // Hashed for unknown students so that a miss costs as much as a wrong password,
+            // which means using the same iteration count as the stored credentials
+            dummyCredential = Credential.create(new char[0], commonIterations());
+        }
+
+        // Most frequent iteration count in the store (the highest on a tie)
+        private static int commonIterations() {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Credential credential : studentAuth.values()) {
+                counts.merge(credential.iterations, 1, Integer::sum);
+            }
+            int iterations = DEFAULT_ITERATIONS;
+            int best = 0;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() > best || (entry.getValue() == best && entry.getKey() > iterations)) {
+                    iterations = entry.getKey();
+                    best = entry.getValue();
+                }
+            }
+            return iterations;
+        }
+
+        private static void loadCredentials(Path path) throws IOException {
+            Base64.Decoder decoder = Base64.getDecoder();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split(":");
+                    if (parts.length != 4) {
+                        throw new IOException("Malformed credential at " + path + ":" + lineNumber);
+                    }
+                    try {
+                        studentAuth.put(parts[0], new Credential(Integer.parseInt(parts[1]), decoder.decode(parts[2]), decoder.decode(parts[3])));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Malformed credential at " + path + ":" + lineNumber, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Credential {
+        private final int iterations;
+        private final byte[] salt;
+        private final byte[] hash;
+
+        Credential(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        static Credential create(char[] password, int iterations) {
+            byte[] salt = new byte[SALT_BYTES];
+            RANDOM.nextBytes(salt);
+            return new Credential(iterations, salt, pbkdf2(password, salt, iterations));
+        }
+
+        boolean matches(char[] password) {
+            return MessageDigest.isEqual(hash, pbkdf2(password, salt, iterations));
+        }
+
+        private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+            PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+            try {
+                return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            } finally {
+                spec.clearPassword();
+            }
+        }
+    }
+
+    private static class Session {
+        private final String studentId;
+        private final long expiresAt;
+
+        Session(String studentId, long expiresAt) {
+            this.studentId = studentId;
+            this.expiresAt = expiresAt;
+        }
     }
 }